@@ -6,6 +6,8 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.Properties;
 
 @Configuration
@@ -76,4 +78,16 @@ public class MailConfig {
 
         return sender;
     }
+
+    // ✅ One long-lived client for the Resend API: keeps the TLS session and HTTP/2 connection warm across emails
+    @Bean
+    public HttpClient resendHttpClient(
+            @Value("${app.mail.resend.connect-timeout-seconds:10}") long connectTimeoutSeconds
+    ) {
+        return HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+    }
 }
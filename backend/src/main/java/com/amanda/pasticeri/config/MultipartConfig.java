@@ -1,5 +1,8 @@
 package com.amanda.pasticeri.config;
 
+import com.amanda.pasticeri.util.UploadPathResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.web.servlet.MultipartConfigFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,18 +10,37 @@ import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.support.StandardServletMultipartResolver;
 
 import jakarta.servlet.MultipartConfigElement;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 @Configuration
 public class MultipartConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(MultipartConfig.class);
+
     @Bean
     public MultipartConfigElement multipartConfigElement() {
         MultipartConfigFactory factory = new MultipartConfigFactory();
         factory.setMaxFileSize(DataSize.ofMegabytes(50));
         factory.setMaxRequestSize(DataSize.ofMegabytes(50));
+        // ✅ Spool multipart parts on the upload volume rather than the container's small /tmp
+        factory.setLocation(multipartLocation());
         return factory.createMultipartConfig();
     }
 
+    private String multipartLocation() {
+        Path location = Paths.get(UploadPathResolver.resolveUploadDirectory()).resolve(".tmp");
+        try {
+            Files.createDirectories(location);
+            return location.toAbsolutePath().toString();
+        } catch (IOException e) {
+            logger.warn("⚠️ Could not create multipart spool directory {}, using the default: {}", location, e.getMessage());
+            return "";
+        }
+    }
+
     @Bean
     public StandardServletMultipartResolver multipartResolver() {
         return new StandardServletMultipartResolver();
@@ -0,0 +1,177 @@
+package com.amanda.pasticeri.config;
+
+import com.amanda.pasticeri.model.Order;
+import com.amanda.pasticeri.model.OrderItem;
+import com.amanda.pasticeri.model.Product;
+import com.amanda.pasticeri.repository.OrderItemRepository;
+import com.amanda.pasticeri.repository.OrderRepository;
+import com.amanda.pasticeri.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * One-off migration that gives menu orders placed before order_items existed their line rows,
+ * rebuilt from the comma-joined productName. It only touches orders that still have no lines,
+ * so it is safe to leave enabled across restarts.
+ * <p>
+ * Legacy carts stored only the total quantity, so for multi-product orders the quantity is spread
+ * evenly across the products and the order's total is split between the lines in proportion to their
+ * current catalog value (evenly when no product is in the catalog any more). The lines of every order
+ * therefore add up to its total; single-product orders are exact.
+ */
+@Component
+public class OrderItemBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderItemBackfill.class);
+    private static final int BATCH_SIZE = 200;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.backfill.order-items.enabled:true}")
+    private boolean enabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOrderItems() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            long afterId = 0L;
+            int migrated = 0;
+            List<Order> batch;
+            do {
+                batch = orderRepository.findMenuOrdersWithoutItems(afterId, PageRequest.of(0, BATCH_SIZE));
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                List<Order> orders = batch;
+                transactionTemplate.executeWithoutResult(status -> orderItemRepository.saveAll(buildLines(orders)));
+                migrated += batch.size();
+                afterId = batch.get(batch.size() - 1).getId();
+            } while (batch.size() == BATCH_SIZE);
+
+            if (migrated > 0) {
+                logger.info("✅ Backfilled order lines for {} legacy menu orders", migrated);
+            }
+        } catch (Exception e) {
+            // Never block startup; the next start picks up where this one stopped
+            logger.error("❌ Order line backfill failed: {}", e.getMessage(), e);
+        }
+    }
+
+    List<OrderItem> buildLines(List<Order> orders) {
+        Set<String> names = new LinkedHashSet<>();
+        for (Order order : orders) {
+            names.addAll(splitNames(order));
+        }
+
+        Map<String, Product> productsByName = new HashMap<>();
+        for (Product product : productRepository.findByNameIn(names)) {
+            productsByName.putIfAbsent(product.getName(), product);
+        }
+
+        List<OrderItem> lines = new ArrayList<>();
+        for (Order order : orders) {
+            List<String> orderNames = splitNames(order);
+            int totalQuantity = Math.max(order.getNumberOfPersons(), orderNames.size());
+
+            List<OrderItem> orderLines = new ArrayList<>();
+            double[] catalogValue = new double[orderNames.size()];
+            for (int i = 0; i < orderNames.size(); i++) {
+                String name = orderNames.get(i);
+                Product product = productsByName.get(name);
+                // Spread the quantity evenly, giving any remainder to the first lines
+                int quantity = totalQuantity / orderNames.size() + (i < totalQuantity % orderNames.size() ? 1 : 0);
+
+                OrderItem line = new OrderItem();
+                line.setOrder(order);
+                line.setProductId(product != null ? product.getId() : null);
+                line.setProductName(name);
+                line.setQuantity(quantity);
+                line.setPriceType(product != null ? product.getPriceType() : null);
+                catalogValue[i] = product != null ? product.getPrice() * quantity : Double.NaN;
+                orderLines.add(line);
+            }
+
+            splitTotal(order.getTotalPrice() != null ? order.getTotalPrice() : 0.0, orderLines, catalogValue);
+            lines.addAll(orderLines);
+        }
+        return lines;
+    }
+
+    /**
+     * Shares {@code total} between {@code lines} in proportion to {@code weights} (NaN for a product no longer
+     * in the catalog, which is weighted as the average known line). Works in cents and rounds the running
+     * total rather than each share, so no line goes negative and the lines add up to {@code total} exactly.
+     */
+    private static void splitTotal(double total, List<OrderItem> lines, double[] weights) {
+        double known = 0;
+        int knownCount = 0;
+        for (double weight : weights) {
+            if (!Double.isNaN(weight) && weight > 0) {
+                known += weight;
+                knownCount++;
+            }
+        }
+        double fallback = knownCount > 0 ? known / knownCount : 1.0;
+        double weightSum = 0;
+        double[] effective = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            effective[i] = !Double.isNaN(weights[i]) && weights[i] > 0 ? weights[i] : fallback;
+            weightSum += effective[i];
+        }
+
+        long totalCents = Math.round(total * 100);
+        double runningWeight = 0;
+        long assigned = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            OrderItem line = lines.get(i);
+            runningWeight += effective[i];
+            long upToHere = i == lines.size() - 1 ? totalCents : Math.round(totalCents * runningWeight / weightSum);
+            long cents = upToHere - assigned;
+            assigned = upToHere;
+            line.setLineTotal(cents / 100.0);
+            line.setUnitPrice(cents / 100.0 / line.getQuantity());
+        }
+    }
+
+    private List<String> splitNames(Order order) {
+        String productName = order.getProductName();
+        if (productName == null || productName.isBlank()) {
+            return List.of("Menu order #" + order.getId());
+        }
+
+        List<String> names = Arrays.stream(productName.split(", "))
+            .map(String::trim)
+            .filter(name -> !name.isEmpty())
+            .toList();
+        return names.isEmpty() ? List.of("Menu order #" + order.getId()) : names;
+    }
+}
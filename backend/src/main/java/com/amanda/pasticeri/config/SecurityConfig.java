@@ -67,6 +67,8 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.PUT, "/api/products/**").authenticated() // Allow PUT for authenticated users
                         .requestMatchers(HttpMethod.DELETE, "/api/products/**").authenticated() // Allow DELETE for authenticated users
                         .requestMatchers(HttpMethod.GET, "/api/feed", "/api/feed/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/images/**").permitAll() // Resized product/feed images
+                        .requestMatchers(HttpMethod.GET, "/api/search").permitAll() // Product and feed search
                         .requestMatchers("/uploads/**").permitAll() // Allow access to uploaded images
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .requestMatchers("/api/**").authenticated()
@@ -2,13 +2,22 @@ package com.amanda.pasticeri.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.PathResourceResolver;
 import com.amanda.pasticeri.util.UploadPathResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
@@ -21,10 +30,56 @@ public class WebConfig implements WebMvcConfigurer {
 
         logger.info("Configuring static resource handler for uploads at: {}", uploadsPath);
 
+        // ✅ Content-addressed uploads never change under their URL: cache for a year without revalidation,
+        // with the content hash from the file name as a strong ETag. Range/206 and Last-Modified come from
+        // the resource handler; the chain serves a precompressed .gz sibling when the client accepts gzip.
+        registry
+            .addResourceHandler("/uploads/cas/**")
+            .addResourceLocations(uploadsPath + "cas/")
+            .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+            .setEtagGenerator(WebConfig::contentHashEtag)
+            .resourceChain(true)
+            .addResolver(new EncodedResourceResolver());
+
+        // Uploads stored before content addressing keep a short cache and revalidate by Last-Modified.
+        // Dot-directories (.tmp holds spooled and half-written uploads) are never served.
         registry
             .addResourceHandler("/uploads/**")
             .addResourceLocations(uploadsPath)
-            .setCachePeriod(3600);
+            .setCachePeriod(3600)
+            .resourceChain(false)
+            .addResolver(new PathResourceResolver() {
+                @Override
+                protected Resource getResource(String resourcePath, Resource location) throws IOException {
+                    return isHidden(resourcePath) ? null : super.getResource(resourcePath, location);
+                }
+            });
+    }
+
+    private static boolean isHidden(String resourcePath) {
+        for (String segment : resourcePath.split("/")) {
+            if (segment.startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // cas/ab/cd/<sha256>.<ext> -> "<sha256>", or "<sha256>-gzip" for the precompressed variant so each
+    // representation keeps its own strong validator
+    private static String contentHashEtag(Resource resource) {
+        String filename = resource.getFilename();
+        if (filename == null || filename.length() < 64) {
+            return null;
+        }
+        String hash = filename.substring(0, 64);
+        if (resource instanceof HttpResource encoded) {
+            String encoding = encoded.getResponseHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+            if (encoding != null) {
+                return hash + "-" + encoding;
+            }
+        }
+        return hash;
     }
 
     @Bean
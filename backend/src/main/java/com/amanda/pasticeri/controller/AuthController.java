@@ -8,6 +8,8 @@ import com.amanda.pasticeri.model.PasswordResetToken;
 import com.amanda.pasticeri.model.User;
 import com.amanda.pasticeri.repository.PasswordResetTokenRepository;
 import com.amanda.pasticeri.repository.UserRepository;
+import com.amanda.pasticeri.security.PrincipalCache;
+import com.amanda.pasticeri.security.VerifiedTokenCache;
 import com.amanda.pasticeri.service.AuthService;
 import com.amanda.pasticeri.service.EmailService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +39,12 @@ public class AuthController {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
     @PostMapping("/login")
     public ResponseEntity<?> login(@RequestBody LoginRequest request) {
         try {
@@ -70,6 +78,7 @@ public class AuthController {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         user.setRole("USER");
         userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
 
         return ResponseEntity.ok(Map.of("success", true, "message", "User registered successfully"));
     }
@@ -113,7 +122,10 @@ public class AuthController {
 
         User user = userOpt.get();
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        // ✅ Sign out every session that used the old password, also across restarts
+        user.setTokensRevokedAt(verifiedTokenCache.revoke(user.getEmail()));
         userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
         tokenRepository.delete(tokenOpt.get());
 
         return ResponseEntity.ok("Password has been reset successfully.");
@@ -131,6 +143,7 @@ public class AuthController {
         User user = userOpt.get();
         user.setRole("ADMIN");
         userRepository.save(user);
+        principalCache.invalidate(user.getEmail());
         
         return ResponseEntity.ok(Map.of("success", true, "message", "User promoted to admin successfully"));
     }
@@ -1,14 +1,15 @@
 package com.amanda.pasticeri.controller;
 
 import com.amanda.pasticeri.model.Order;
-import com.amanda.pasticeri.security.JwtTokenProvider;
+import com.amanda.pasticeri.model.User;
 import com.amanda.pasticeri.service.OrderService;
 import com.amanda.pasticeri.service.EmailServiceImpl;
+import com.amanda.pasticeri.util.KeysetPaging;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -17,30 +18,30 @@ import java.util.Map;
 public class ClientOrderController {
 
     private final OrderService orderService;
-    private final JwtTokenProvider jwtTokenProvider;
     private final EmailServiceImpl emailService;
 
-    public ClientOrderController(OrderService orderService, JwtTokenProvider jwtTokenProvider, EmailServiceImpl emailService) {
+    public ClientOrderController(OrderService orderService, EmailServiceImpl emailService) {
         this.orderService = orderService;
-        this.jwtTokenProvider = jwtTokenProvider;
         this.emailService = emailService;
     }
 
     @GetMapping("/orders")
     @PreAuthorize("hasAnyAuthority('ROLE_USER', 'ROLE_ADMIN')")
-    public List<Order> getMyOrders(@RequestHeader("Authorization") String tokenHeader) {
-        String token = tokenHeader.replace("Bearer ", "");
-        String email = jwtTokenProvider.getEmailFromToken(token);
-        return orderService.getOrdersByEmail(email);
+    public ResponseEntity<?> getMyOrders(@AuthenticationPrincipal User user,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer limit) {
+        String email = user.getEmail();
+        return KeysetPaging.respond(ResponseEntity.ok(), cursor, limit, OrderService.MAX_HISTORY_LIMIT,
+            () -> orderService.getOrdersByEmail(email),
+            (position, size) -> orderService.getOrderHistory(email, position, size));
     }
 
     @PostMapping("/orders/{id}/cancel")
     @PreAuthorize("hasAnyAuthority('ROLE_USER', 'ROLE_ADMIN')")
-    public ResponseEntity<?> cancelMyOrder(@PathVariable("id") Long id, @RequestHeader("Authorization") String tokenHeader) {
+    public ResponseEntity<?> cancelMyOrder(@PathVariable("id") Long id, @AuthenticationPrincipal User user) {
         System.out.println("🎯 CLIENT CANCEL ORDER ENDPOINT HIT - Order ID: " + id);
         try {
-            String token = tokenHeader.replace("Bearer ", "");
-            String email = jwtTokenProvider.getEmailFromToken(token);
+            String email = user.getEmail();
             orderService.cancelMyOrder(id, email);
             return ResponseEntity.ok().body(Map.of("message", "Order canceled successfully."));
         } catch (Exception e) {
@@ -51,10 +52,9 @@ public class ClientOrderController {
 
     @PostMapping("/test-email")
     @PreAuthorize("hasAnyAuthority('ROLE_USER', 'ROLE_ADMIN')")
-    public ResponseEntity<?> testEmail(@RequestHeader("Authorization") String tokenHeader) {
+    public ResponseEntity<?> testEmail(@AuthenticationPrincipal User user) {
         try {
-            String token = tokenHeader.replace("Bearer ", "");
-            String email = jwtTokenProvider.getEmailFromToken(token);
+            String email = user.getEmail();
             
             emailService.sendTestEmail(email);
             
@@ -1,15 +1,28 @@
 package com.amanda.pasticeri.controller;
 
+import com.amanda.pasticeri.dto.FeedPage;
 import com.amanda.pasticeri.model.FeedItem;
 import com.amanda.pasticeri.repository.FeedItemRepository;
+import com.amanda.pasticeri.service.ChunkedUploadService;
 import com.amanda.pasticeri.service.ImageUploadService;
+import com.amanda.pasticeri.service.ImageVariantService;
+import com.amanda.pasticeri.service.SearchIndexService;
+import com.amanda.pasticeri.util.KeysetPaging;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,12 +36,61 @@ public class FeedController {
     @Autowired
     private ImageUploadService imageUploadService;
 
-    // List all feed items (newest first) - public access
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    private static final int MAX_PAGE_LIMIT = 100;
+
+    // Bumped on every add/delete; conditional GETs are answered from it without a database query.
+    // The boot time is part of the ETag so a restart never reuses an old tag for different content.
+    private final long bootId = System.currentTimeMillis();
+    private volatile FeedVersion feedVersion = new FeedVersion(0, bootId);
+
+    // List feed items (newest first) - public access.
+    // Without limit/cursor the whole feed is returned for older clients; otherwise one keyset-paged slice.
     @GetMapping
-    public List<FeedItem> getAll() {
-        return feedRepo.findAll().stream()
-            .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()))
-            .toList();
+    public ResponseEntity<?> getAll(@RequestParam(required = false) String cursor,
+                                    @RequestParam(required = false) Integer limit,
+                                    WebRequest request) {
+        FeedVersion version = feedVersion;
+        if (request.checkNotModified("feed-" + bootId + "-" + version.number(), version.lastModified())) {
+            return null; // 304, headers already set
+        }
+        return KeysetPaging.respond(ResponseEntity.ok().cacheControl(CacheControl.noCache()), cursor, limit, MAX_PAGE_LIMIT,
+            feedRepo::findAllByOrderByCreatedAtDescIdDesc, this::getPage);
+    }
+
+    private FeedPage getPage(String cursor, int size) {
+        // Fetch one extra row to know whether another slice exists, without a COUNT query
+        Pageable window = PageRequest.of(0, size + 1);
+
+        List<FeedItem> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = feedRepo.findAllByOrderByCreatedAtDescIdDesc(window);
+        } else {
+            KeysetPaging.Cursor<LocalDateTime> position = KeysetPaging.Cursor.decode(cursor, LocalDateTime::parse);
+            rows = feedRepo.findPageAfter(position.position(), position.id(), window);
+        }
+
+        if (rows.size() <= size) {
+            return new FeedPage(rows, null);
+        }
+
+        List<FeedItem> items = rows.subList(0, size);
+        FeedItem last = items.get(size - 1);
+        return new FeedPage(List.copyOf(items), new KeysetPaging.Cursor<>(last.getCreatedAt(), last.getId()).encode());
+    }
+
+    private synchronized void feedChanged() {
+        // HTTP dates have second precision; never hand out a Last-Modified older than a change we served
+        long now = Math.max(System.currentTimeMillis(), feedVersion.lastModified() + 1000);
+        feedVersion = new FeedVersion(feedVersion.number() + 1, now);
     }
 
     // Add a new feed item (image upload, video upload, or video link) - admin only
@@ -58,6 +120,9 @@ public class FeedController {
                     // Use ImageUploadService for consistent file handling
                     String imageUrl = imageUploadService.saveImage(file);
                     item.setUrl(imageUrl);
+                } else if (url != null && url.startsWith("/uploads/")) {
+                    // Already stored through /api/feed/upload
+                    item.setUrl(url);
                 } else {
                     return ResponseEntity.badRequest().body(Map.of("error", "Image file is required for image type."));
                 }
@@ -108,6 +173,12 @@ public class FeedController {
             }
             
             FeedItem savedItem = feedRepo.save(item);
+            imageUploadService.attach(savedItem.getUrl());
+            feedChanged();
+            searchIndexService.indexFeedItem(savedItem);
+            if ("image".equals(type)) {
+                imageVariantService.prerender(savedItem.getUrl());
+            }
             return ResponseEntity.ok(savedItem);
             
         } catch (IllegalArgumentException e) {
@@ -117,15 +188,119 @@ public class FeedController {
         }
     }
 
+    // Stream an image or video straight to the upload volume - admin only.
+    // The request body is the raw file (not multipart), so a large video is written to disk exactly once;
+    // pass the returned URL as 'url' to POST /api/feed.
+    @PostMapping("/upload")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<?> streamUpload(
+        @RequestParam String type, // 'image' or 'video'
+        @RequestParam String filename,
+        HttpServletRequest request
+    ) {
+        try {
+            String fileUrl = imageUploadService.saveStream(request.getInputStream(), request.getContentLengthLong(),
+                filename, request.getContentType(), type);
+            return ResponseEntity.ok(Map.of("url", fileUrl));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to upload file: " + e.getMessage()));
+        }
+    }
+
+    // Resumable upload for large videos - admin only.
+    // 1) POST /uploads with filename, type, size (and optionally the file's SHA-256 as checksum)
+    // 2) PUT /uploads/{id}?offset=N with each chunk as the raw body; GET /uploads/{id} tells where to resume
+    // 3) POST /uploads/{id}/complete returns the stored file's URL, to be passed as 'url' to POST /api/feed
+    @PostMapping("/uploads")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<?> initChunkedUpload(
+        @RequestParam String type, // 'image' or 'video'
+        @RequestParam String filename,
+        @RequestParam long size,
+        @RequestParam(required = false) String contentType,
+        @RequestParam(required = false) String checksum
+    ) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.init(filename, contentType, type, size, checksum));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to start upload: " + e.getMessage()));
+        }
+    }
+
+    @PutMapping("/uploads/{uploadId}")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<?> appendChunk(@PathVariable String uploadId, @RequestParam long offset, HttpServletRequest request) {
+        try {
+            return ResponseEntity.ok(chunkedUploadService.append(uploadId, offset, request.getInputStream()));
+        } catch (IllegalStateException e) {
+            return chunkConflict(uploadId, e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to store chunk: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<?> chunkedUploadStatus(@PathVariable String uploadId) {
+        return chunkedUploadService.status(uploadId)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Upload not found or expired")));
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<?> completeChunkedUpload(@PathVariable String uploadId, @RequestParam(required = false) String checksum) {
+        try {
+            return ResponseEntity.ok(Map.of("url", chunkedUploadService.complete(uploadId, checksum)));
+        } catch (IllegalStateException e) {
+            return chunkConflict(uploadId, e);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to complete upload: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<?> abortChunkedUpload(@PathVariable String uploadId) {
+        try {
+            chunkedUploadService.abort(uploadId);
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to abort upload: " + e.getMessage()));
+        }
+    }
+
+    // Chunk at the wrong offset or finalize too early: tell the client where to resume from
+    private ResponseEntity<?> chunkConflict(String uploadId, IllegalStateException e) {
+        Map<String, Object> body = new HashMap<>(chunkedUploadService.status(uploadId).orElse(Map.of()));
+        body.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
     // Delete a feed item - admin only
     @DeleteMapping("/{id}")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<?> deleteFeedItem(@PathVariable Long id) {
         try {
+            String fileUrl = feedRepo.findById(id).map(FeedItem::getUrl).orElse(null);
             feedRepo.deleteById(id);
+            feedChanged();
+            searchIndexService.removeFeedItem(id);
+            imageUploadService.release(fileUrl);
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", "Failed to delete feed item: " + e.getMessage()));
         }
     }
-} 
\ No newline at end of file
+
+    private record FeedVersion(long number, long lastModified) {
+    }
+}
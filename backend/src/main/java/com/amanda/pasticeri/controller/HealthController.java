@@ -1,5 +1,10 @@
 package com.amanda.pasticeri.controller;
 
+import com.amanda.pasticeri.security.PrincipalCache;
+import com.amanda.pasticeri.security.VerifiedTokenCache;
+import com.amanda.pasticeri.service.EmailOutboxDispatcher;
+import com.amanda.pasticeri.service.SearchIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,6 +16,18 @@ import java.util.Map;
 @RestController
 public class HealthController {
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private EmailOutboxDispatcher emailOutboxDispatcher;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
     @Value("${app.build.version:unknown}")
     private String buildVersion;
 
@@ -55,6 +72,9 @@ public class HealthController {
         body.put("service", "Pasticeri Amanda Backend");
         body.put("timestamp", System.currentTimeMillis());
         body.put("mail", buildMailStatus());
+        body.put("principalCache", principalCache.stats());
+        body.put("tokenCache", verifiedTokenCache.stats());
+        body.put("searchIndex", searchIndexService.stats());
 
         return ResponseEntity.ok(body);
     }
@@ -72,6 +92,7 @@ public class HealthController {
         mail.put("passwordSet", passSet);
         mail.put("configured", mailEnabled && hostSet && userSet && passSet);
         mail.put("recommendedPort", 465);
+        mail.put("outbox", emailOutboxDispatcher.stats());
         return mail;
     }
 }
@@ -0,0 +1,54 @@
+package com.amanda.pasticeri.controller;
+
+import com.amanda.pasticeri.service.ImageVariantService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/images")
+@CrossOrigin(origins = {"https://pasticeriamanda.com", "https://www.pasticeriamanda.com", "http://localhost:3000"}, allowCredentials = "true")
+public class ImageController {
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    // Resized copy of an upload, e.g. /api/images/640/cas/ab/cd/<sha256>.jpg for /uploads/cas/ab/cd/<sha256>.jpg
+    // - public access. Made on first request, then served from the disk cache.
+    @GetMapping("/{width}/{*path}")
+    public ResponseEntity<?> getVariant(
+        @PathVariable int width,
+        @PathVariable String path,
+        @RequestParam(defaultValue = "jpeg") String format
+    ) {
+        return imageVariantService.variant("/uploads" + path, width, format)
+            .<ResponseEntity<?>>map(variant -> {
+                if (!variant.rendered()) {
+                    // Resize failed: point at the original without letting anyone cache that answer
+                    return ResponseEntity.status(HttpStatus.FOUND)
+                        .cacheControl(CacheControl.noStore())
+                        .location(URI.create("/uploads" + path))
+                        .build();
+                }
+                FileSystemResource file = new FileSystemResource(variant.file());
+                // Content-addressed uploads never change, so neither do their variants
+                CacheControl cacheControl = path.startsWith("/cas/")
+                    ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                    : CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic();
+                return ResponseEntity.ok()
+                    .cacheControl(cacheControl)
+                    .eTag(variant.checksum() + "-" + width + "-" + format)
+                    .contentType(MediaTypeFactory.getMediaType(file).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                    .body(file);
+            })
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -2,15 +2,25 @@ package com.amanda.pasticeri.controller;
 
 import com.amanda.pasticeri.dto.CartOrderDto;
 import com.amanda.pasticeri.dto.OrderRequestDto;
+import com.amanda.pasticeri.dto.OrderSummaryDto;
+import com.amanda.pasticeri.dto.ProductSalesDto;
 import com.amanda.pasticeri.model.Order;
-import com.amanda.pasticeri.security.JwtTokenProvider;
+import com.amanda.pasticeri.model.User;
 import com.amanda.pasticeri.service.OrderService;
+import com.amanda.pasticeri.util.KeysetPaging;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -20,11 +30,9 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
-    private final JwtTokenProvider jwtTokenProvider;
 
-    public OrderController(OrderService orderService, JwtTokenProvider jwtTokenProvider) {
+    public OrderController(OrderService orderService) {
         this.orderService = orderService;
-        this.jwtTokenProvider = jwtTokenProvider;
     }
 
     @GetMapping
@@ -33,6 +41,39 @@ public class OrderController {
         return orderService.getAll();
     }
 
+    // Paged admin listing, e.g. /api/orders/page?status=pending&orderType=menu&from=2025-01-01&sort=deliveryDateTime,asc
+    @GetMapping("/page")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<?> getPage(@RequestParam(required = false) String status,
+                                     @RequestParam(required = false) String orderType,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                     @RequestParam(required = false) String customerEmail,
+                                     @PageableDefault(size = 20) Pageable pageable) {
+        try {
+            Page<OrderSummaryDto> page = orderService.getOrderSummaries(status, orderType, from, to, customerEmail, pageable);
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("content", page.getContent());
+            body.put("page", page.getNumber());
+            body.put("size", page.getSize());
+            body.put("totalElements", page.getTotalElements());
+            body.put("totalPages", page.getTotalPages());
+            return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Per-product sales report aggregated from order_items
+    @GetMapping("/sales-by-product")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public List<ProductSalesDto> getSalesByProduct(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return orderService.getSalesByProduct(from, to);
+    }
+
     @GetMapping("/dashboard")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<?> adminOnlyStuff() {
@@ -43,20 +84,22 @@ public class OrderController {
 
     @GetMapping("/my-orders")
     @PreAuthorize("hasAnyAuthority('ROLE_USER', 'ROLE_ADMIN')")
-    public List<Order> getMyOrders(@RequestHeader("Authorization") String tokenHeader) {
-        String token = tokenHeader.replace("Bearer ", "");
-        String email = jwtTokenProvider.getEmailFromToken(token);
-        return orderService.getOrdersByEmail(email);
+    public ResponseEntity<?> getMyOrders(@AuthenticationPrincipal User user,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(required = false) Integer limit) {
+        String email = user.getEmail();
+        return KeysetPaging.respond(ResponseEntity.ok(), cursor, limit, OrderService.MAX_HISTORY_LIMIT,
+            () -> orderService.getOrdersByEmail(email),
+            (position, size) -> orderService.getOrderHistory(email, position, size));
     }
 
     // ✅ FIXED: Secure custom order using token email
     @PostMapping(value = "/custom", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @PreAuthorize("hasAnyAuthority('ROLE_USER', 'ROLE_ADMIN')")
     public ResponseEntity<?> placeCustomOrder(@ModelAttribute OrderRequestDto orderDto,
-                                              @RequestHeader("Authorization") String tokenHeader) {
+                                              @AuthenticationPrincipal User user) {
         try {
-            String token = tokenHeader.replace("Bearer ", "");
-            String email = jwtTokenProvider.getEmailFromToken(token);
+            String email = user.getEmail();
             Order saved = orderService.placeCustomOrder(orderDto, email);
             return ResponseEntity.ok(Map.of(
                 "success", true,
@@ -76,9 +119,8 @@ public class OrderController {
     // ✅ Menu Order (JSON)
     @PostMapping(value = "/menu", consumes = MediaType.APPLICATION_JSON_VALUE)
     @PreAuthorize("hasAnyAuthority('ROLE_USER', 'ROLE_ADMIN')")
-    public ResponseEntity<?> placeCartOrder(@RequestBody CartOrderDto cartOrderDto, @RequestHeader("Authorization") String tokenHeader) {
-        String token = tokenHeader.replace("Bearer ", "");
-        String email = jwtTokenProvider.getEmailFromToken(token);
+    public ResponseEntity<?> placeCartOrder(@RequestBody CartOrderDto cartOrderDto, @AuthenticationPrincipal User user) {
+        String email = user.getEmail();
         orderService.placeCartOrder(cartOrderDto, email);
         return ResponseEntity.ok("Menu order placed successfully.");
     }
@@ -86,10 +128,11 @@ public class OrderController {
     // ✅ Client order history
     @GetMapping("/client/orders")
     @PreAuthorize("hasAnyAuthority('ROLE_USER', 'ROLE_ADMIN')")
-    public List<Order> getClientOrders(@RequestHeader("Authorization") String tokenHeader) {
-        String token = tokenHeader.replace("Bearer ", "");
-        String email = jwtTokenProvider.getEmailFromToken(token);
-        return orderService.getOrdersByEmail(email);
+    public ResponseEntity<?> getClientOrders(@AuthenticationPrincipal User user,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(required = false) Integer limit) {
+        // Same list as /my-orders
+        return getMyOrders(user, cursor, limit);
     }
 
     @PutMapping("/{id}/set-price")
@@ -116,10 +159,9 @@ public class OrderController {
     // Client can cancel their own orders
     @PostMapping("/client/orders/{id}/cancel")
     @PreAuthorize("hasAnyAuthority('ROLE_USER', 'ROLE_ADMIN')")
-    public ResponseEntity<?> clientCancelOrder(@PathVariable Long id, @RequestHeader("Authorization") String tokenHeader) {
+    public ResponseEntity<?> clientCancelOrder(@PathVariable Long id, @AuthenticationPrincipal User user) {
         try {
-            String token = tokenHeader.replace("Bearer ", "");
-            String email = jwtTokenProvider.getEmailFromToken(token);
+            String email = user.getEmail();
             
             // Verify the order belongs to the client
             List<Order> clientOrders = orderService.getOrdersByEmail(email);
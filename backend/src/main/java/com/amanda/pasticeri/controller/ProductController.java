@@ -1,9 +1,13 @@
 package com.amanda.pasticeri.controller;
 
 import com.amanda.pasticeri.model.Product;
+import com.amanda.pasticeri.service.ProductCatalogCache;
 import com.amanda.pasticeri.service.ProductService;
 import com.amanda.pasticeri.service.ImageUploadService;
+import com.amanda.pasticeri.service.ImageVariantService;
+import com.amanda.pasticeri.service.UploadRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -22,20 +26,55 @@ public class ProductController {
 
     private final ProductService service;
     private final ImageUploadService imageUploadService;
+    private final UploadRegistry uploadRegistry;
+    private final ImageVariantService imageVariantService;
+    private final ProductCatalogCache catalogCache;
 
-    public ProductController(ProductService service, ImageUploadService imageUploadService) {
+    public ProductController(ProductService service, ImageUploadService imageUploadService, UploadRegistry uploadRegistry,
+                             ImageVariantService imageVariantService, ProductCatalogCache catalogCache) {
         this.service = service;
         this.imageUploadService = imageUploadService;
+        this.uploadRegistry = uploadRegistry;
+        this.imageVariantService = imageVariantService;
+        this.catalogCache = catalogCache;
     }
 
+    // Served from the pre-serialized catalog; clients revalidate with If-None-Match and usually get a 304
     @GetMapping
-    public List<Product> getAll() {
-        return service.getAll();
+    public ResponseEntity<byte[]> getAll() {
+        return catalogResponse(catalogCache.all());
+    }
+
+    // Filtered, sorted and paged catalog, e.g. /api/products/query?category=Torta&sort=price&page=0&size=24
+    @GetMapping("/query")
+    public ResponseEntity<?> query(@RequestParam(required = false) String category,
+                                   @RequestParam(required = false) Double minPrice,
+                                   @RequestParam(required = false) Double maxPrice,
+                                   @RequestParam(required = false) String priceType,
+                                   @RequestParam(required = false) String q,
+                                   @RequestParam(required = false) String sort,
+                                   @RequestParam(defaultValue = "0") int page,
+                                   @RequestParam(defaultValue = "24") int size) {
+        try {
+            return ResponseEntity.ok(service.query(category, minPrice, maxPrice, priceType, q, sort, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/{id}")
-    public Product getById(@PathVariable Long id) {
-        return service.getById(id);
+    public ResponseEntity<?> getById(@PathVariable Long id) {
+        return catalogCache.byId(id)
+            .<ResponseEntity<?>>map(this::catalogResponse)
+            .orElseGet(() -> ResponseEntity.ok(service.getById(id)));
+    }
+
+    private ResponseEntity<byte[]> catalogResponse(ProductCatalogCache.Payload payload) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .cacheControl(CacheControl.noCache())
+            .eTag(payload.etag())
+            .body(payload.json());
     }
 
     @PostMapping
@@ -87,6 +126,7 @@ public class ProductController {
             }
             
             String imageUrl = imageUploadService.saveImage(file);
+            imageVariantService.prerender(imageUrl);
             return ResponseEntity.ok(Map.of("imageUrl", imageUrl));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -124,27 +164,23 @@ public class ProductController {
             pathInfo.put("canRead", uploadsDir.canRead());
             pathInfo.put("canWrite", uploadsDir.canWrite());
             pathInfo.put("absolutePath", uploadsDir.getAbsolutePath());
-            
-            if (uploadsDir.exists() && uploadsDir.isDirectory()) {
-                File[] files = uploadsDir.listFiles();
-                List<Map<String, Object>> fileList = new ArrayList<>();
-                if (files != null) {
-                    for (File file : files) {
-                        Map<String, Object> fileInfo = new HashMap<>();
-                        fileInfo.put("name", file.getName());
-                        fileInfo.put("size", file.length());
-                        fileInfo.put("isFile", file.isFile());
-                        fileInfo.put("isDirectory", file.isDirectory());
-                        fileInfo.put("canRead", file.canRead());
-                        fileList.add(fileInfo);
-                    }
-                }
-                pathInfo.put("files", fileList);
-                pathInfo.put("fileCount", files != null ? files.length : 0);
-            }
             pathTests.add(pathInfo);
         }
         response.put("pathTests", pathTests);
+
+        // ✅ File listing comes from the upload registry instead of walking the volume
+        response.put("registry", uploadRegistry.stats());
+        List<Map<String, Object>> recentFiles = new ArrayList<>();
+        uploadRegistry.recent(50).forEach(file -> {
+            Map<String, Object> fileInfo = new HashMap<>();
+            fileInfo.put("url", file.getUrl());
+            fileInfo.put("path", file.getStoragePath());
+            fileInfo.put("size", file.getSize());
+            fileInfo.put("contentType", file.getContentType());
+            fileInfo.put("checksum", file.getChecksum());
+            recentFiles.add(fileInfo);
+        });
+        response.put("recentFiles", recentFiles);
         
         return ResponseEntity.ok(response);
     }
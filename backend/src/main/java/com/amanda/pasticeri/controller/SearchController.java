@@ -0,0 +1,27 @@
+package com.amanda.pasticeri.controller;
+
+import com.amanda.pasticeri.service.SearchIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/search")
+@CrossOrigin(origins = {"https://pasticeriamanda.com", "https://www.pasticeriamanda.com", "http://localhost:3000"}, allowCredentials = "true")
+public class SearchController {
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    // Search products and feed items, e.g. /api/search?q=torte cokol - public access.
+    // Accents are optional ("cokollate" finds "Çokollatë") and words may be unfinished.
+    @GetMapping
+    public ResponseEntity<List<SearchIndexService.Hit>> search(
+        @RequestParam(defaultValue = "") String q,
+        @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(searchIndexService.search(q, limit));
+    }
+}
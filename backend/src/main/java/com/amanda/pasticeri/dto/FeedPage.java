@@ -0,0 +1,19 @@
+package com.amanda.pasticeri.dto;
+
+import com.amanda.pasticeri.model.FeedItem;
+
+import java.util.List;
+
+// One slice of the feed, newest first; nextCursor is null on the last slice
+public class FeedPage {
+    private final List<FeedItem> items;
+    private final String nextCursor;
+
+    public FeedPage(List<FeedItem> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<FeedItem> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+}
@@ -0,0 +1,19 @@
+package com.amanda.pasticeri.dto;
+
+import com.amanda.pasticeri.model.Order;
+
+import java.util.List;
+
+// One slice of a customer's order history; nextCursor is null on the last slice
+public class OrderHistoryPage {
+    private final List<Order> items;
+    private final String nextCursor;
+
+    public OrderHistoryPage(List<Order> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Order> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+}
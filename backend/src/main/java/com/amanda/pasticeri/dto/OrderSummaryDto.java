@@ -0,0 +1,50 @@
+package com.amanda.pasticeri.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Lightweight admin listing row; leaves out the TEXT customNote and imageUrls columns
+public class OrderSummaryDto {
+    private final Long id;
+    private final String customerName;
+    private final String customerEmail;
+    private final String customerPhone;
+    private final String productName;
+    private final int numberOfPersons;
+    private final String flavour;
+    private final Double totalPrice;
+    private final LocalDate orderDate;
+    private final String status;
+    private final LocalDateTime deliveryDateTime;
+    private final String orderType;
+
+    public OrderSummaryDto(Long id, String customerName, String customerEmail, String customerPhone,
+                           String productName, int numberOfPersons, String flavour, Double totalPrice,
+                           LocalDate orderDate, String status, LocalDateTime deliveryDateTime, String orderType) {
+        this.id = id;
+        this.customerName = customerName;
+        this.customerEmail = customerEmail;
+        this.customerPhone = customerPhone;
+        this.productName = productName;
+        this.numberOfPersons = numberOfPersons;
+        this.flavour = flavour;
+        this.totalPrice = totalPrice;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.deliveryDateTime = deliveryDateTime;
+        this.orderType = orderType;
+    }
+
+    public Long getId() { return id; }
+    public String getCustomerName() { return customerName; }
+    public String getCustomerEmail() { return customerEmail; }
+    public String getCustomerPhone() { return customerPhone; }
+    public String getProductName() { return productName; }
+    public int getNumberOfPersons() { return numberOfPersons; }
+    public String getFlavour() { return flavour; }
+    public Double getTotalPrice() { return totalPrice; }
+    public LocalDate getOrderDate() { return orderDate; }
+    public String getStatus() { return status; }
+    public LocalDateTime getDeliveryDateTime() { return deliveryDateTime; }
+    public String getOrderType() { return orderType; }
+}
@@ -0,0 +1,26 @@
+package com.amanda.pasticeri.dto;
+
+import com.amanda.pasticeri.model.Product;
+
+import java.util.List;
+
+// One page of a filtered catalog query
+public class ProductPage {
+    private final List<Product> items;
+    private final int page;
+    private final int size;
+    private final long totalItems;
+
+    public ProductPage(List<Product> items, int page, int size, long totalItems) {
+        this.items = items;
+        this.page = page;
+        this.size = size;
+        this.totalItems = totalItems;
+    }
+
+    public List<Product> getItems() { return items; }
+    public int getPage() { return page; }
+    public int getSize() { return size; }
+    public long getTotalItems() { return totalItems; }
+    public int getTotalPages() { return (int) ((totalItems + size - 1) / size); }
+}
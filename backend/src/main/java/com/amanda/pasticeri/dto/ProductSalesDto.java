@@ -0,0 +1,24 @@
+package com.amanda.pasticeri.dto;
+
+// One row of the sales-by-product report, aggregated from order_items
+public class ProductSalesDto {
+    private final Long productId;
+    private final String productName;
+    private final long quantity;
+    private final double revenue;
+    private final long orderCount;
+
+    public ProductSalesDto(Long productId, String productName, Long quantity, Double revenue, Long orderCount) {
+        this.productId = productId;
+        this.productName = productName;
+        this.quantity = quantity != null ? quantity : 0L;
+        this.revenue = revenue != null ? revenue : 0.0;
+        this.orderCount = orderCount != null ? orderCount : 0L;
+    }
+
+    public Long getProductId() { return productId; }
+    public String getProductName() { return productName; }
+    public long getQuantity() { return quantity; }
+    public double getRevenue() { return revenue; }
+    public long getOrderCount() { return orderCount; }
+}
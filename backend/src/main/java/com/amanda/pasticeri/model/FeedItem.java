@@ -1,10 +1,15 @@
 package com.amanda.pasticeri.model;
 
+import com.amanda.pasticeri.util.ImageVariants;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Entity
-@Table(name = "feed_items")
+@Table(name = "feed_items", indexes = {
+    @Index(name = "idx_feed_items_created_id", columnList = "created_at, id")
+})
 public class FeedItem {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -36,6 +41,9 @@ public class FeedItem {
     public void setTitle(String title) { this.title = title; }
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
+    // ✅ Resized copies for srcset on image items; null for videos
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public Map<String, String> getImageVariants() { return "image".equals(type) ? ImageVariants.forUpload(url) : null; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 } 
\ No newline at end of file
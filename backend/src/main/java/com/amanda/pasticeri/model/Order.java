@@ -5,7 +5,12 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+    @Index(name = "idx_orders_status_delivery", columnList = "status, delivery_date_time"),
+    @Index(name = "idx_orders_status_order_date", columnList = "status, order_date"),
+    @Index(name = "idx_orders_order_date", columnList = "order_date"),
+    @Index(name = "idx_orders_customer_date_id", columnList = "customer_email, order_date, id")
+})
 public class Order {
 
     @Id
@@ -0,0 +1,63 @@
+package com.amanda.pasticeri.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "order_items", indexes = {
+    @Index(name = "idx_order_items_order", columnList = "order_id"),
+    @Index(name = "idx_order_items_product", columnList = "product_id, order_id")
+})
+public class OrderItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id", nullable = false)
+    private Order order;
+
+    @Column(nullable = true)
+    private Long productId;
+
+    @Column(nullable = false)
+    private String productName; // ✅ Name as it was when the order was placed
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(nullable = false)
+    private double unitPrice; // ✅ Price snapshot, unaffected by later menu edits
+
+    @Column(nullable = true)
+    private String priceType;
+
+    @Column(nullable = false)
+    private double lineTotal;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Order getOrder() { return order; }
+    public void setOrder(Order order) { this.order = order; }
+
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public String getProductName() { return productName; }
+    public void setProductName(String productName) { this.productName = productName; }
+
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+
+    public double getUnitPrice() { return unitPrice; }
+    public void setUnitPrice(double unitPrice) { this.unitPrice = unitPrice; }
+
+    public String getPriceType() { return priceType; }
+    public void setPriceType(String priceType) { this.priceType = priceType; }
+
+    public double getLineTotal() { return lineTotal; }
+    public void setLineTotal(double lineTotal) { this.lineTotal = lineTotal; }
+}
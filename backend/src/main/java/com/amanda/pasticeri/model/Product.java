@@ -1,9 +1,15 @@
 package com.amanda.pasticeri.model;
 
+import com.amanda.pasticeri.util.ImageVariants;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import java.util.Map;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+    @Index(name = "idx_products_category_price", columnList = "category, price"),
+    @Index(name = "idx_products_price", columnList = "price")
+})
 public class Product {
 
     @Id
@@ -74,6 +80,12 @@ public class Product {
         this.imageUrl = imageUrl;
     }
 
+    // ✅ Resized copies of the image for srcset, e.g. {"320w": ..., "640w": ..., "srcset": ...}
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public Map<String, String> getImageVariants() {
+        return ImageVariants.forUpload(imageUrl);
+    }
+
     public String getPriceType() {
         return priceType;
     }
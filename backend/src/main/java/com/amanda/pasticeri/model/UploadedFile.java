@@ -0,0 +1,59 @@
+package com.amanda.pasticeri.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "uploaded_files", indexes = {
+    @Index(name = "idx_uploaded_files_checksum", columnList = "checksum")
+})
+public class UploadedFile {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String url; // ✅ Public path as stored on orders/products/feed, e.g. "/uploads/1700000000_cake.jpg"
+
+    @Column(nullable = false, length = 1000)
+    private String storagePath; // Canonical absolute path on the volume
+
+    @Column(nullable = false)
+    private long size;
+
+    private String contentType;
+
+    @Column(length = 64)
+    private String checksum; // SHA-256, hex
+
+    private String fileType; // 'image' or 'video'
+
+    @Column(nullable = false)
+    private int refCount = 0; // ✅ Products, feed items and orders showing this file; unreferenced files are swept
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime uploadedAt = LocalDateTime.now(); // Last upload of this content (null on rows from before)
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+    public String getStoragePath() { return storagePath; }
+    public void setStoragePath(String storagePath) { this.storagePath = storagePath; }
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    public String getChecksum() { return checksum; }
+    public void setChecksum(String checksum) { this.checksum = checksum; }
+    public String getFileType() { return fileType; }
+    public void setFileType(String fileType) { this.fileType = fileType; }
+    public int getRefCount() { return refCount; }
+    public void setRefCount(int refCount) { this.refCount = refCount; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getUploadedAt() { return uploadedAt; }
+    public void setUploadedAt(LocalDateTime uploadedAt) { this.uploadedAt = uploadedAt; }
+}
@@ -21,6 +21,10 @@ public class User {
 
     private String name;
 
+    // ✅ Tokens issued before this instant (epoch millis) are rejected, e.g. after a password reset
+    @Column(name = "tokens_revoked_at")
+    private Long tokensRevokedAt;
+
     // --- Getters and Setters ---
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -36,4 +40,7 @@ public class User {
 
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
+
+    public Long getTokensRevokedAt() { return tokensRevokedAt; }
+    public void setTokensRevokedAt(Long tokensRevokedAt) { this.tokensRevokedAt = tokensRevokedAt; }
 }
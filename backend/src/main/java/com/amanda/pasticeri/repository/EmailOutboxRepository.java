@@ -0,0 +1,32 @@
+package com.amanda.pasticeri.repository;
+
+import com.amanda.pasticeri.model.EmailOutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    Optional<EmailOutboxMessage> findFirstByOrderIdAndEventTypeAndRecipientOrderByIdDesc(Long orderId, String eventType, String recipient);
+
+    // Due messages, oldest first (served by idx_email_outbox_due)
+    List<EmailOutboxMessage> findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAscIdAsc(
+            String status, LocalDateTime now, Pageable pageable);
+
+    long countByStatus(String status);
+
+    // Sent messages are only kept for deduplication and inspection; DEAD ones stay until handled
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM EmailOutboxMessage m WHERE m.status = 'SENT' AND m.sentAt < :cutoff")
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff);
+}
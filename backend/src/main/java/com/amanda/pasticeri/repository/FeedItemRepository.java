@@ -1,7 +1,29 @@
 package com.amanda.pasticeri.repository;
 
 import com.amanda.pasticeri.model.FeedItem;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface FeedItemRepository extends JpaRepository<FeedItem, Long> {
-} 
\ No newline at end of file
+
+    @Query("SELECT f.url FROM FeedItem f WHERE f.url LIKE '/uploads/%'")
+    List<String> findUploadedUrls();
+
+    // Newest first (served by idx_feed_items_created_id)
+    List<FeedItem> findAllByOrderByCreatedAtDescIdDesc();
+
+    List<FeedItem> findAllByOrderByCreatedAtDescIdDesc(Pageable pageable);
+
+    // Keyset continuation: everything strictly after (createdAt, id) in newest-first order
+    @Query("SELECT f FROM FeedItem f "
+            + "WHERE f.createdAt < :createdAt OR (f.createdAt = :createdAt AND f.id < :id) "
+            + "ORDER BY f.createdAt DESC, f.id DESC")
+    List<FeedItem> findPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                                 @Param("id") Long id,
+                                 Pageable pageable);
+}
@@ -0,0 +1,30 @@
+package com.amanda.pasticeri.repository;
+
+import com.amanda.pasticeri.dto.ProductSalesDto;
+import com.amanda.pasticeri.model.OrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    List<OrderItem> findByOrderId(Long orderId);
+
+    // Sales per product over non-cancelled orders, aggregated in the database
+    // (joins through idx_order_items_product and idx_orders_order_date)
+    @Query("SELECT new com.amanda.pasticeri.dto.ProductSalesDto(i.productId, i.productName, "
+            + "SUM(i.quantity), SUM(i.lineTotal), COUNT(DISTINCT o.id)) "
+            + "FROM OrderItem i JOIN i.order o "
+            + "WHERE o.status <> 'canceled' "
+            + "AND (:fromDate IS NULL OR o.orderDate >= :fromDate) "
+            + "AND (:toDate IS NULL OR o.orderDate <= :toDate) "
+            + "GROUP BY i.productId, i.productName "
+            + "ORDER BY SUM(i.lineTotal) DESC")
+    List<ProductSalesDto> sumSalesByProduct(@Param("fromDate") LocalDate fromDate,
+                                            @Param("toDate") LocalDate toDate);
+}
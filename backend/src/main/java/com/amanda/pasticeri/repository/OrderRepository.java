@@ -1,9 +1,20 @@
 package com.amanda.pasticeri.repository;
 
+import com.amanda.pasticeri.dto.OrderSummaryDto;
 import com.amanda.pasticeri.model.Order;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,10 +25,64 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     // Find all orders by customer's email
     List<Order> findByCustomerEmail(String customerEmail);
 
+    // Customer history, newest first (served by idx_orders_customer_date_id)
+    List<Order> findByCustomerEmailOrderByOrderDateDescIdDesc(String customerEmail);
+
+    List<Order> findByCustomerEmailOrderByOrderDateDescIdDesc(String customerEmail, Pageable pageable);
+
+    // Keyset continuation: everything strictly after (orderDate, id) in newest-first order
+    @Query("SELECT o FROM Order o WHERE o.customerEmail = :email "
+            + "AND (o.orderDate < :orderDate OR (o.orderDate = :orderDate AND o.id < :id)) "
+            + "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findHistoryAfter(@Param("email") String email,
+                                 @Param("orderDate") LocalDate orderDate,
+                                 @Param("id") Long id,
+                                 Pageable pageable);
+
     // Find all orders by product name
     List<Order> findByProductNameContainingIgnoreCase(String productName);
 
     // Find all orders sorted by order date
     List<Order> findAllByOrderByOrderDateDesc();
 
+    // Find one page of orders in a status whose delivery time has already passed
+    // (served by idx_orders_status_delivery). The rows stay locked until the transaction ends, so an admin
+    // edit cannot change their status between this read and the UPDATE that follows it.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<Order> findByStatusAndDeliveryDateTimeBefore(String status, LocalDateTime cutoff, Pageable pageable);
+
+    // Set-based status transition; the expected status guard keeps concurrent admin edits from being overwritten
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :newStatus WHERE o.id IN :ids AND o.status = :expectedStatus")
+    int updateStatusForIds(@Param("ids") Collection<Long> ids,
+                           @Param("expectedStatus") String expectedStatus,
+                           @Param("newStatus") String newStatus);
+
+    // Admin listing: optional filters, sort and paging are applied in the database and only summary columns are read
+    @Query(value = "SELECT new com.amanda.pasticeri.dto.OrderSummaryDto(o.id, o.customerName, o.customerEmail, o.customerPhone, "
+            + "o.productName, o.numberOfPersons, o.flavour, o.totalPrice, o.orderDate, o.status, o.deliveryDateTime, o.orderType) "
+            + "FROM Order o " + ORDER_FILTER,
+           countQuery = "SELECT COUNT(o) FROM Order o " + ORDER_FILTER)
+    Page<OrderSummaryDto> findSummaries(@Param("status") String status,
+                                        @Param("orderType") String orderType,
+                                        @Param("fromDate") LocalDate fromDate,
+                                        @Param("toDate") LocalDate toDate,
+                                        @Param("customerEmail") String customerEmail,
+                                        Pageable pageable);
+
+    // Legacy menu orders placed before order_items existed, walked in id order for the backfill
+    @Query("SELECT o FROM Order o WHERE o.orderType = 'menu' AND o.id > :afterId "
+            + "AND NOT EXISTS (SELECT i.id FROM OrderItem i WHERE i.order = o) ORDER BY o.id")
+    List<Order> findMenuOrdersWithoutItems(@Param("afterId") Long afterId, Pageable pageable);
+
+    String ORDER_FILTER = "WHERE (:status IS NULL OR o.status = :status) "
+            + "AND (:orderType IS NULL OR o.orderType = :orderType) "
+            + "AND (:fromDate IS NULL OR o.orderDate >= :fromDate) "
+            + "AND (:toDate IS NULL OR o.orderDate <= :toDate) "
+            + "AND (:customerEmail IS NULL OR o.customerEmail = :customerEmail)";
+
+
+    // Comma-separated, see Order.imageUrls
+    @Query("SELECT o.imageUrls FROM Order o WHERE o.imageUrls LIKE '%/uploads/%'")
+    List<String> findUploadedImageUrls();
 }
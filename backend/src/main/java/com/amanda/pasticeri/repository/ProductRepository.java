@@ -2,6 +2,18 @@ package com.amanda.pasticeri.repository;
 
 import com.amanda.pasticeri.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
-}
\ No newline at end of file
+import java.util.Collection;
+import java.util.List;
+
+// Filtered catalog queries go through JpaSpecificationExecutor so only the filters given end up in the
+// WHERE clause and idx_products_category_price / idx_products_price can be used
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
+
+    List<Product> findByNameIn(Collection<String> names);
+
+    @Query("SELECT p.imageUrl FROM Product p WHERE p.imageUrl LIKE '/uploads/%'")
+    List<String> findUploadedImageUrls();
+}
@@ -0,0 +1,32 @@
+package com.amanda.pasticeri.repository;
+
+import com.amanda.pasticeri.model.UploadedFile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface UploadedFileRepository extends JpaRepository<UploadedFile, Long> {
+
+    Optional<UploadedFile> findByUrl(String url);
+
+    Optional<UploadedFile> findFirstByChecksumOrderByIdAsc(String checksum);
+
+    List<UploadedFile> findAllByOrderByIdDesc(Pageable pageable);
+
+    // Files nothing points at any more, last uploaded before the cutoff and kept under the given directory
+    @Query("SELECT f FROM UploadedFile f WHERE f.refCount = 0 "
+            + "AND COALESCE(f.uploadedAt, f.createdAt) < :cutoff AND f.storagePath LIKE :storagePrefix")
+    List<UploadedFile> findUnreferenced(@Param("cutoff") LocalDateTime cutoff,
+                                        @Param("storagePrefix") String storagePrefix);
+
+    @Query("SELECT COALESCE(SUM(f.size), 0) FROM UploadedFile f")
+    long sumSize();
+
+    @Query("SELECT COALESCE(SUM(f.refCount), 0) FROM UploadedFile f")
+    long sumRefCount();
+}
@@ -3,8 +3,12 @@ package com.amanda.pasticeri.repository;
 import com.amanda.pasticeri.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    // Users whose sessions were revoked recently enough that some of their old tokens may still be unexpired
+    List<User> findByTokensRevokedAtGreaterThan(long cutoff);
 }
@@ -17,6 +17,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Component
@@ -28,6 +29,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -41,15 +45,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 String token = header.substring(7);
                 System.out.println("🔐 Token extracted");
 
-                if (tokenProvider.validateToken(token)) {
+                Optional<TokenClaims> parsed = tokenProvider.parseToken(token);
+                if (parsed.isPresent()) {
                     System.out.println("✅ Token is valid");
 
-                    String email = tokenProvider.getEmailFromJWT(token);
-                    String roles = tokenProvider.getRoleFromJWT(token);
+                    TokenClaims claims = parsed.get();
+                    request.setAttribute(TokenClaims.REQUEST_ATTRIBUTE, claims);
+
+                    String email = claims.getEmail();
+                    String roles = claims.getRole();
                     System.out.println("📧 Processing authentication for email: " + email);
 
-                    User user = userRepository.findByEmail(email)
-                            .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
+                    User user = principalCache.get(email, claims.getIssuedAt(), () -> userRepository.findByEmail(email)
+                            .orElseThrow(() -> new RuntimeException("User not found with email: " + email)));
 
                     // Handle multiple roles
                     List<SimpleGrantedAuthority> authorities = Arrays.stream(roles.split(","))
@@ -0,0 +1,110 @@
+package com.amanda.pasticeri.security;
+
+import com.amanda.pasticeri.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, TTL-evicted cache of the users resolved by {@link JwtAuthenticationFilter}.
+ * Entries are keyed by token subject and issued-at, so a fresh login never reuses a stale entry,
+ * and are dropped explicitly whenever a user's account is changed.
+ */
+@Component
+public class PrincipalCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrincipalCache.class);
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<Key, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public PrincipalCache(@Value("${app.auth.principal-cache.max-size:1000}") int maxSize,
+                          @Value("${app.auth.principal-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        // Access-ordered so the least recently used principal is evicted first once the cache is full
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > PrincipalCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        logger.info("Principal cache initialized (maxSize={}, ttl={}s)", maxSize, ttlSeconds);
+    }
+
+    public User get(String subject, long issuedAt, Supplier<User> loader) {
+        if (maxSize <= 0) {
+            misses.incrementAndGet();
+            return loader.get();
+        }
+
+        Key key = new Key(subject, issuedAt);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    hits.incrementAndGet();
+                    return entry.user;
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        User user = loader.get();
+        synchronized (entries) {
+            entries.put(key, new Entry(user, now + ttlMillis));
+        }
+        return user;
+    }
+
+    // Drop every cached principal for this email, whatever token it was issued with
+    public void invalidate(String email) {
+        if (email == null) {
+            return;
+        }
+        synchronized (entries) {
+            if (entries.keySet().removeIf(key -> key.subject.equalsIgnoreCase(email))) {
+                invalidations.incrementAndGet();
+                logger.debug("Principal cache invalidated for {}", email);
+            }
+        }
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private record Key(String subject, long issuedAt) {}
+
+    private record Entry(User user, long expiresAt) {}
+}
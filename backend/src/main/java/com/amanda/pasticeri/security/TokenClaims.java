@@ -0,0 +1,30 @@
+package com.amanda.pasticeri.security;
+
+/**
+ * Immutable view of a verified JWT, produced once per request by {@link JwtTokenProvider#parseToken(String)}.
+ * The authentication filter stores it as a request attribute so nothing downstream has to re-verify the token.
+ */
+public final class TokenClaims {
+
+    public static final String REQUEST_ATTRIBUTE = TokenClaims.class.getName();
+
+    private final String email;
+    private final String role;
+    private final long issuedAt;
+    private final long expiresAt;
+
+    public TokenClaims(String email, String role, long issuedAt, long expiresAt) {
+        this.email = email;
+        this.role = role;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getEmail() { return email; }
+
+    public String getRole() { return role; }
+
+    public long getIssuedAt() { return issuedAt; }
+
+    public long getExpiresAt() { return expiresAt; }
+}
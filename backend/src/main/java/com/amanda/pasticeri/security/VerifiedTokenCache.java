@@ -0,0 +1,167 @@
+package com.amanda.pasticeri.security;
+
+import com.amanda.pasticeri.model.User;
+import com.amanda.pasticeri.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU of bearer tokens whose signature has already been verified, keyed by the SHA-256 of the token.
+ * The SPA repeats the same token on every poll, so a hit skips the HS512 verification and JSON parsing.
+ * Entries expire at the token's own {@code exp}.
+ * <p>
+ * Also the record of revoked sessions: {@link #revoke} stores a per-email cut-off, and
+ * {@link JwtTokenProvider} rejects every token of that email issued before it, cached or not. Cut-offs are
+ * persisted on the user ({@code tokensRevokedAt}) and reloaded at startup, and are forgotten once every token
+ * they could apply to has expired.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long tokenLifetimeMillis;
+    private final Map<String, TokenClaims> entries;
+    // lower-cased email -> tokens issued before this instant (epoch millis, whole seconds) are rejected
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revocations = new AtomicLong();
+
+    public VerifiedTokenCache(@Value("${app.auth.token-cache.enabled:true}") boolean enabled,
+                              @Value("${app.auth.token-cache.max-size:2000}") int maxSize,
+                              @Value("${jwt.expiration:86400000}") long tokenLifetimeMillis) {
+        this.enabled = enabled && maxSize > 0;
+        this.maxSize = maxSize;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenClaims> eldest) {
+                return size() > VerifiedTokenCache.this.maxSize;
+            }
+        };
+        logger.info("Verified token cache {} (maxSize={})", this.enabled ? "enabled" : "disabled", maxSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public TokenClaims get(String token) {
+        if (!enabled) {
+            return null;
+        }
+
+        String key = hash(token);
+        synchronized (entries) {
+            TokenClaims claims = entries.get(key);
+            if (claims != null) {
+                if (claims.getExpiresAt() > System.currentTimeMillis()) {
+                    hits.incrementAndGet();
+                    return claims;
+                }
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String token, TokenClaims claims) {
+        if (!enabled || claims.getExpiresAt() <= System.currentTimeMillis()) {
+            return;
+        }
+        String key = hash(token);
+        synchronized (entries) {
+            entries.put(key, claims);
+        }
+    }
+
+    // Revocations made before a restart still apply to the tokens that were issued before them
+    @PostConstruct
+    void loadRevocations() {
+        long cutoff = System.currentTimeMillis() - tokenLifetimeMillis;
+        for (User user : userRepository.findByTokensRevokedAtGreaterThan(cutoff)) {
+            revokedBefore.put(user.getEmail().toLowerCase(Locale.ROOT), user.getTokensRevokedAt());
+        }
+        if (!revokedBefore.isEmpty()) {
+            logger.info("Loaded {} token revocations", revokedBefore.size());
+        }
+    }
+
+    /**
+     * Revokes every token issued to {@code email} so far and returns the cut-off, which the caller persists
+     * as the user's {@code tokensRevokedAt}. JWT {@code iat} has whole-second precision, so the cut-off is
+     * rounded down to the second: a token issued after the revocation is never rejected, at the price of
+     * accepting one issued earlier within the same second.
+     */
+    public long revoke(String email) {
+        long now = System.currentTimeMillis();
+        long cutoff = now / 1000 * 1000;
+        revokedBefore.put(email.toLowerCase(Locale.ROOT), cutoff);
+        revokedBefore.values().removeIf(revokedAt -> revokedAt < now - tokenLifetimeMillis);
+        revocations.incrementAndGet();
+
+        if (enabled) {
+            synchronized (entries) {
+                entries.values().removeIf(claims -> email.equalsIgnoreCase(claims.getEmail()));
+            }
+        }
+        logger.debug("Tokens revoked for {} (issued before {})", email, cutoff);
+        return cutoff;
+    }
+
+    // True when the token was issued before its email's latest revocation
+    public boolean isRevoked(TokenClaims claims) {
+        if (revokedBefore.isEmpty() || claims.getEmail() == null) {
+            return false;
+        }
+        Long cutoff = revokedBefore.get(claims.getEmail().toLowerCase(Locale.ROOT));
+        return cutoff != null && claims.getIssuedAt() < cutoff;
+    }
+
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", size);
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("revocations", revocations.get());
+        stats.put("revokedEmails", revokedBefore.size());
+        return stats;
+    }
+
+    private String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,126 +1,148 @@
 package com.amanda.pasticeri.service;
 
+import com.amanda.pasticeri.model.EmailOutboxMessage;
 import com.amanda.pasticeri.model.Order;
+import com.amanda.pasticeri.repository.EmailOutboxRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDateTime;
 
+/**
+ * Records order notifications in the email outbox. Callers invoke these methods inside the transaction that
+ * changes the order, so the notification is committed (or rolled back) together with the order write;
+ * {@link EmailOutboxDispatcher} sends them once the transaction has committed.
+ * <p>
+ * Each row is inserted in a savepoint with plain JDBC, so when a concurrent call has already queued the same
+ * idempotency key the unique constraint rejects only that insert; the caller's order write is unaffected.
+ */
 @Service
 public class AsyncEmailService {
 
     private static final Logger logger = LoggerFactory.getLogger(AsyncEmailService.class);
-    private static final String ADMIN_EMAIL = "pasticeriamanda@gmail.com";
 
-    private final EmailService emailService;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
-        Thread thread = new Thread(r, "email-worker");
-        thread.setDaemon(true);
-        return thread;
-    });
+    private static final String INSERT_MESSAGE = "INSERT INTO email_outbox "
+        + "(idempotency_key, order_id, event_type, recipient, status, attempts, next_attempt_at, created_at) "
+        + "VALUES (?, ?, ?, ?, 'PENDING', 0, ?, ?)";
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailOutboxDispatcher dispatcher;
+    private final JdbcTemplate jdbcTemplate;
 
     @Autowired
-    public AsyncEmailService(EmailService emailService) {
-        this.emailService = emailService;
+    public AsyncEmailService(EmailOutboxRepository outboxRepository, EmailOutboxDispatcher dispatcher,
+                             JdbcTemplate jdbcTemplate) {
+        this.outboxRepository = outboxRepository;
+        this.dispatcher = dispatcher;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
+    @Transactional
     public void sendOrderNotifications(Order order) {
         logger.info("🔔 sendOrderNotifications triggered for order ID: {} to customer: {}", order.getId(), order.getCustomerEmail());
-        executor.execute(() -> {
-            if (hasCustomerEmail(order)) {
-                try {
-                    logger.info("📧 Attempting to send order confirmation to: {}", order.getCustomerEmail());
-                    emailService.sendOrderConfirmation(order.getCustomerEmail(), order);
-                    logger.info("✅ Order confirmation email sent to: {}", order.getCustomerEmail());
-                } catch (Exception e) {
-                    logger.error("⚠️ Failed to send order confirmation email: {}", e.getMessage(), e);
-                }
-            } else {
-                logger.warn("⚠️ Skipping customer email — no customer email on order #" + order.getId());
-            }
-
-            try {
-                logger.info("📧 Attempting to send admin notification for order ID: {}", order.getId());
-                emailService.sendAdminNotification(ADMIN_EMAIL, order);
-                logger.info("✅ Admin notification email sent for order ID: {}", order.getId());
-            } catch (Exception e) {
-                logger.error("⚠️ Failed to send admin notification email: {}", e.getMessage(), e);
-            }
-        });
+        enqueue(order, EmailOutboxMessage.ORDER_PLACED, null);
     }
 
+    @Transactional
     public void sendPriceSetNotification(Order order) {
         logger.info("💰 sendPriceSetNotification triggered for order ID: {}", order.getId());
-        executor.execute(() -> {
-            if (hasCustomerEmail(order)) {
-                try {
-                    logger.info("📧 Attempting to send price set email to: {}", order.getCustomerEmail());
-                    emailService.sendPriceSetEmail(order.getCustomerEmail(), order);
-                    logger.info("✅ Price set email sent to: {}", order.getCustomerEmail());
-                } catch (Exception e) {
-                    logger.error("⚠️ Failed to send price set email: {}", e.getMessage(), e);
-                }
-            } else {
-                logger.warn("⚠️ Skipping price email — no customer email on order #" + order.getId());
-            }
-
-            try {
-                logger.info("📧 Attempting to send admin price-set notification for order ID: {}", order.getId());
-                emailService.sendAdminPriceSetNotification(ADMIN_EMAIL, order);
-                logger.info("✅ Admin price-set notification sent for order ID: {}", order.getId());
-            } catch (Exception e) {
-                logger.error("⚠️ Failed to send admin price-set notification: {}", e.getMessage(), e);
-            }
-        });
+        // Every price change is its own notification, numbered per order (a price that goes back to an earlier
+        // value is still announced); concurrent duplicates of one change get the same number and collapse
+        enqueue(order, EmailOutboxMessage.PRICE_SET, String.valueOf(nextPriceSetNumber(order.getId())));
     }
 
+    @Transactional
     public void sendCancellationNotifications(Order order) {
         logger.info("❌ sendCancellationNotifications triggered for order ID: {}", order.getId());
-        executor.execute(() -> {
-            if (hasCustomerEmail(order)) {
-                try {
-                    logger.info("📧 Attempting to send cancellation email to customer: {}", order.getCustomerEmail());
-                    emailService.sendOrderCancelledEmail(order.getCustomerEmail(), order);
-                    logger.info("✅ Cancellation email sent to customer");
-                } catch (Exception e) {
-                    logger.error("⚠️ Failed to send cancellation email to customer: {}", e.getMessage(), e);
-                }
-            }
-
-            try {
-                logger.info("📧 Attempting to send admin cancellation notification");
-                emailService.sendAdminCancellationNotification(ADMIN_EMAIL, order);
-                logger.info("✅ Admin cancellation notification sent");
-            } catch (Exception e) {
-                logger.error("⚠️ Failed to send admin cancellation notification: {}", e.getMessage(), e);
-            }
-        });
+        enqueue(order, EmailOutboxMessage.CANCELLED, null);
     }
 
+    @Transactional
     public void sendCompletionNotifications(Order order) {
         logger.info("✅ sendCompletionNotifications triggered for order ID: {}", order.getId());
-        executor.execute(() -> {
-            if (hasCustomerEmail(order)) {
-                try {
-                    logger.info("📧 Attempting to send completion email to: {}", order.getCustomerEmail());
-                    emailService.sendOrderCompletedEmail(order.getCustomerEmail(), order);
-                    logger.info("✅ Completion email sent to: {}", order.getCustomerEmail());
-                } catch (Exception e) {
-                    logger.error("⚠️ Failed to send completion email: {}", e.getMessage(), e);
+        enqueue(order, EmailOutboxMessage.COMPLETED, null);
+    }
+
+    private void enqueue(Order order, String eventType, String discriminator) {
+        if (hasCustomerEmail(order)) {
+            add(order, eventType, "customer", discriminator);
+        } else {
+            logger.warn("⚠️ Skipping customer email — no customer email on order #" + order.getId());
+        }
+        add(order, eventType, "admin", discriminator);
+
+        // Wake the dispatcher only once the order write is visible to it
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.wakeUp();
                 }
-            }
+            });
+        } else {
+            dispatcher.wakeUp();
+        }
+    }
 
-            try {
-                logger.info("📧 Attempting to send admin completion notification");
-                emailService.sendAdminCompletionNotification(ADMIN_EMAIL, order);
-                logger.info("✅ Admin completion notification sent for order ID: {}", order.getId());
-            } catch (Exception e) {
-                logger.error("⚠️ Failed to send admin completion notification: {}", e.getMessage(), e);
+    private void add(Order order, String eventType, String recipient, String discriminator) {
+        String key = order.getId() + ":" + eventType + ":" + recipient + (discriminator != null ? ":" + discriminator : "");
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Integer>) con -> insertInSavepoint(con, key, order.getId(), eventType, recipient, now));
+            logger.info("📬 Queued outbox email {}", key);
+        } catch (DuplicateKeyException e) {
+            logger.info("📭 Outbox already holds {}, not queuing it again", key);
+        }
+    }
+
+    // The savepoint is taken on the JDBC connection of the surrounding JPA transaction (Hibernate's JpaDialect
+    // does not offer nested transactions), so a rejected insert never poisons that transaction
+    private static int insertInSavepoint(Connection con, String key, Long orderId, String eventType, String recipient,
+                                         LocalDateTime now) throws SQLException {
+        Savepoint savepoint = con.getAutoCommit() ? null : con.setSavepoint();
+        try (PreparedStatement ps = con.prepareStatement(INSERT_MESSAGE)) {
+            ps.setString(1, key);
+            ps.setLong(2, orderId);
+            ps.setString(3, eventType);
+            ps.setString(4, recipient);
+            ps.setObject(5, now);
+            ps.setObject(6, now);
+            int inserted = ps.executeUpdate();
+            if (savepoint != null) {
+                con.releaseSavepoint(savepoint);
             }
-        });
+            return inserted;
+        } catch (SQLException e) {
+            if (savepoint != null) {
+                con.rollback(savepoint);
+            }
+            throw e;
+        }
+    }
+
+    private int nextPriceSetNumber(Long orderId) {
+        return outboxRepository.findFirstByOrderIdAndEventTypeAndRecipientOrderByIdDesc(orderId, EmailOutboxMessage.PRICE_SET, "admin")
+            .map(latest -> {
+                String key = latest.getIdempotencyKey();
+                try {
+                    return Integer.parseInt(key.substring(key.lastIndexOf(':') + 1)) + 1;
+                } catch (NumberFormatException e) {
+                    return 1; // keys from before numbering ended in the price
+                }
+            })
+            .orElse(1);
     }
 
     private boolean hasCustomerEmail(Order order) {
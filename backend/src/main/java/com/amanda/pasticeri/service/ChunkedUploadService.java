@@ -0,0 +1,321 @@
+package com.amanda.pasticeri.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.RandomAccessFile;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable uploads for large feed videos: the client announces the file, sends it in chunks at explicit
+ * offsets, and finalizes once every byte has arrived. Chunks are streamed into a file pre-allocated to the
+ * full size with positional writes, so a dropped connection only costs the chunk in flight and memory use
+ * does not depend on the video's size. The finished file is verified against its SHA-256 and handed to
+ * {@link ImageUploadService} as if it had been uploaded in one piece.
+ * <p>
+ * Each upload's metadata is kept in a sidecar ({@code chunked-<id>.properties}) next to its
+ * {@code chunked-<id>.part} file and reloaded on startup, so a client can resume across a restart or redeploy.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String PREFIX = "chunked-";
+    private static final String DATA_SUFFIX = ".part";
+    private static final String META_SUFFIX = ".properties";
+
+    @Autowired
+    private ImageUploadService imageUploadService;
+
+    @Value("${app.upload.chunked.expiry-hours:24}")
+    private long expiryHours;
+
+    private final Map<String, ChunkedUpload> uploads = new ConcurrentHashMap<>();
+
+    /**
+     * Starts an upload of {@code size} bytes. {@code checksum} is the client's SHA-256 (hex) of the whole
+     * file; it is optional here and may also be given on {@link #complete}.
+     */
+    public Map<String, Object> init(String filename, String contentType, String fileType, long size, String checksum) throws IOException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("File is null or empty");
+        }
+        if ((contentType == null || contentType.isBlank()) && filename != null) {
+            contentType = URLConnection.guessContentTypeFromName(filename);
+        }
+        imageUploadService.validate(filename, contentType, fileType, size);
+
+        String uploadId = UUID.randomUUID().toString();
+        Path file = imageUploadService.tempDirectory().resolve(PREFIX + uploadId + DATA_SUFFIX);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(size);
+        }
+
+        ChunkedUpload upload = new ChunkedUpload(uploadId, file, filename, contentType, fileType, size, checksum);
+        saveMetadata(upload);
+        uploads.put(uploadId, upload);
+        logger.info("📦 Chunked {} upload {} started: {} ({} KB)", fileType, uploadId, filename, size / 1024);
+        return upload.status();
+    }
+
+    /**
+     * Writes one chunk at {@code offset}. Chunks must continue from (or overlap) what has already been
+     * received, so a client that lost a response can simply resend; a gap is rejected with the offset to
+     * resume from.
+     */
+    public Map<String, Object> append(String uploadId, long offset, InputStream body) throws IOException {
+        ChunkedUpload upload = require(uploadId);
+        synchronized (upload) {
+            if (offset < 0 || offset > upload.received) {
+                throw new IllegalStateException("Expected a chunk at offset " + upload.received + " but got " + offset);
+            }
+
+            long position = offset;
+            byte[] chunk = new byte[COPY_BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            try (FileChannel channel = FileChannel.open(upload.file, StandardOpenOption.WRITE)) {
+                int read;
+                while ((read = body.read(chunk)) != -1) {
+                    if (position + read > upload.size) {
+                        throw new IllegalArgumentException("Chunk runs past the announced size of " + upload.size + " bytes");
+                    }
+                    buffer.clear().limit(read);
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                }
+            }
+            upload.received = Math.max(upload.received, position);
+            upload.lastActivity = Instant.now();
+            // Written after the data, so a crash in between only makes the client resend what it already sent
+            saveMetadata(upload);
+            return upload.status();
+        }
+    }
+
+    public Optional<Map<String, Object>> status(String uploadId) {
+        ChunkedUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            return Optional.empty();
+        }
+        synchronized (upload) {
+            return Optional.of(upload.status());
+        }
+    }
+
+    /**
+     * Verifies the assembled file and stores it. The SHA-256 is computed in one sequential pass over the
+     * file; if the client supplied a checksum (now or at init) and it differs, the upload is discarded.
+     */
+    public String complete(String uploadId, String checksum) throws IOException {
+        ChunkedUpload upload = require(uploadId);
+        synchronized (upload) {
+            if (upload.received != upload.size) {
+                throw new IllegalStateException("Upload incomplete: received " + upload.received + " of " + upload.size + " bytes");
+            }
+
+            String actual = sha256(upload.file);
+            String expected = checksum != null && !checksum.isBlank() ? checksum : upload.checksum;
+            if (expected != null && !expected.isBlank() && !expected.equalsIgnoreCase(actual)) {
+                discard(upload);
+                throw new IllegalArgumentException("Checksum mismatch: the upload was corrupted and has been discarded");
+            }
+
+            try {
+                return imageUploadService.storeCompleted(upload.file, actual, upload.size,
+                    upload.filename, upload.contentType, upload.fileType);
+            } finally {
+                discard(upload);
+            }
+        }
+    }
+
+    public void abort(String uploadId) throws IOException {
+        ChunkedUpload upload = uploads.get(uploadId);
+        if (upload != null) {
+            synchronized (upload) {
+                discard(upload);
+            }
+        }
+    }
+
+    // Uploads in progress before a restart, loaded before the first request; ones that cannot be read back
+    // are left to the expiry sweep
+    @PostConstruct
+    public void restoreUploads() {
+        try (DirectoryStream<Path> sidecars = Files.newDirectoryStream(imageUploadService.tempDirectory(), PREFIX + "*" + META_SUFFIX)) {
+            for (Path sidecar : sidecars) {
+                try {
+                    ChunkedUpload upload = loadMetadata(sidecar);
+                    if (Files.isRegularFile(upload.file)) {
+                        uploads.putIfAbsent(upload.id, upload);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("⚠️ Could not restore chunked upload from {}: {}", sidecar.getFileName(), e.getMessage());
+                }
+            }
+            if (!uploads.isEmpty()) {
+                logger.info("📦 Restored {} chunked uploads in progress", uploads.size());
+            }
+        } catch (IOException e) {
+            logger.warn("⚠️ Could not restore chunked uploads: {}", e.getMessage());
+        }
+    }
+
+    // Abandoned uploads would otherwise keep their pre-allocated file on the volume forever. Files are
+    // judged by modification time as well, which also catches ones no session refers to any more.
+    @Scheduled(fixedDelay = 3600000) // 1 hour
+    public void expireStaleUploads() {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(expiryHours));
+        for (ChunkedUpload upload : uploads.values()) {
+            synchronized (upload) {
+                if (upload.lastActivity.isBefore(cutoff)) {
+                    try {
+                        discard(upload);
+                        logger.info("🧹 Expired chunked upload {} ({})", upload.id, upload.filename);
+                    } catch (IOException e) {
+                        logger.warn("⚠️ Could not remove expired chunked upload {}: {}", upload.id, e.getMessage());
+                    }
+                }
+            }
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(imageUploadService.tempDirectory(), PREFIX + "*")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                    logger.info("🧹 Deleted stale chunked upload file {}", file.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("⚠️ Could not sweep chunked upload files: {}", e.getMessage());
+        }
+    }
+
+    private ChunkedUpload require(String uploadId) {
+        ChunkedUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            throw new IllegalArgumentException("Upload not found or expired: " + uploadId);
+        }
+        return upload;
+    }
+
+    private void discard(ChunkedUpload upload) throws IOException {
+        uploads.remove(upload.id);
+        Files.deleteIfExists(upload.file);
+        Files.deleteIfExists(sidecar(upload.file));
+    }
+
+    private static Path sidecar(Path dataFile) {
+        String name = dataFile.getFileName().toString();
+        return dataFile.resolveSibling(name.substring(0, name.length() - DATA_SUFFIX.length()) + META_SUFFIX);
+    }
+
+    // Written to a temp file and renamed over the old sidecar, so a crash never leaves half a sidecar
+    private void saveMetadata(ChunkedUpload upload) throws IOException {
+        Properties metadata = new Properties();
+        metadata.setProperty("filename", upload.filename);
+        metadata.setProperty("contentType", upload.contentType);
+        metadata.setProperty("fileType", upload.fileType);
+        metadata.setProperty("size", String.valueOf(upload.size));
+        if (upload.checksum != null) {
+            metadata.setProperty("checksum", upload.checksum);
+        }
+        metadata.setProperty("received", String.valueOf(upload.received));
+        metadata.setProperty("lastActivity", upload.lastActivity.toString());
+
+        Path target = sidecar(upload.file);
+        Path temp = target.resolveSibling(target.getFileName() + ".new");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            metadata.store(out, null);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static ChunkedUpload loadMetadata(Path sidecar) throws IOException {
+        Properties metadata = new Properties();
+        try (Reader in = Files.newBufferedReader(sidecar, StandardCharsets.ISO_8859_1)) {
+            metadata.load(in);
+        }
+        String name = sidecar.getFileName().toString();
+        String id = name.substring(PREFIX.length(), name.length() - META_SUFFIX.length());
+        ChunkedUpload upload = new ChunkedUpload(id, sidecar.resolveSibling(PREFIX + id + DATA_SUFFIX),
+            metadata.getProperty("filename"), metadata.getProperty("contentType"), metadata.getProperty("fileType"),
+            Long.parseLong(metadata.getProperty("size")), metadata.getProperty("checksum"));
+        upload.received = Long.parseLong(metadata.getProperty("received"));
+        upload.lastActivity = Instant.parse(metadata.getProperty("lastActivity"));
+        return upload;
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest = UploadRegistry.newSha256();
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static final class ChunkedUpload {
+        private final String id;
+        private final Path file;
+        private final String filename;
+        private final String contentType;
+        private final String fileType;
+        private final long size;
+        private final String checksum;
+        private long received;
+        private Instant lastActivity = Instant.now();
+
+        private ChunkedUpload(String id, Path file, String filename, String contentType, String fileType,
+                              long size, String checksum) {
+            this.id = id;
+            this.file = file;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.fileType = fileType;
+            this.size = size;
+            this.checksum = checksum;
+        }
+
+        private Map<String, Object> status() {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("uploadId", id);
+            status.put("size", size);
+            status.put("received", received);
+            return status;
+        }
+    }
+}
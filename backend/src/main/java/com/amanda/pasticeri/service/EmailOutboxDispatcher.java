@@ -0,0 +1,297 @@
+package com.amanda.pasticeri.service;
+
+import com.amanda.pasticeri.model.EmailOutboxMessage;
+import com.amanda.pasticeri.model.Order;
+import com.amanda.pasticeri.repository.EmailOutboxRepository;
+import com.amanda.pasticeri.repository.OrderRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the email outbox written by {@link AsyncEmailService}. Each message is retried with exponential
+ * backoff until it is sent or reaches the attempt limit, at which point it is dead-lettered (status DEAD)
+ * and left in the table for inspection. Delivery is at-least-once: a crash between sending and recording
+ * SENT means the message goes out again on the next run. SENT rows are pruned after
+ * {@code app.mail.outbox.sent-retention-days}.
+ * <p>
+ * A single coordinator thread reads due rows and hands each one to a bounded worker pool, so the customer
+ * and admin copies of a notification go out in parallel. When the pool's queue is full the coordinator
+ * stops reading; the rows simply stay PENDING and are picked up again as soon as a worker frees up.
+ * Per-provider concurrency caps live in {@link EmailServiceImpl}.
+ */
+@Service
+public class EmailOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+    static final String ADMIN_EMAIL = "pasticeriamanda@gmail.com";
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Value("${app.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.initial-backoff-seconds:30}")
+    private long initialBackoffSeconds;
+
+    @Value("${app.mail.outbox.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    @Value("${app.mail.outbox.sent-retention-days:7}")
+    private long sentRetentionDays;
+
+    @Value("${app.mail.workers.pool-size:4}")
+    private int poolSize;
+
+    @Value("${app.mail.workers.queue-capacity:100}")
+    private int queueCapacity;
+
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "email-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ThreadPoolExecutor workers;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean wakeRequested = new AtomicBoolean();
+    // Set when a drain stopped early because the pool was full; the next finished send re-triggers it
+    private final AtomicBoolean saturated = new AtomicBoolean();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        workers = new ThreadPoolExecutor(
+            poolSize, poolSize, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            r -> {
+                Thread thread = new Thread(r, "email-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+        workers.allowCoreThreadTimeOut(true);
+        logger.info("📮 Email worker pool started with {} threads and a queue of {}", poolSize, queueCapacity);
+    }
+
+    // Safety net for retries and for messages whose after-commit wake-up was missed (e.g. a restart)
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:15000}")
+    public void poll() {
+        wakeUp();
+    }
+
+    // Keeps the outbox from growing without bound; a sent notification only needs its row while a duplicate
+    // of it could still be enqueued, which happens within seconds of the original
+    @Scheduled(fixedDelay = 21600000) // 6 hours
+    public void pruneSent() {
+        int removed = outboxRepository.deleteSentBefore(LocalDateTime.now().minusDays(sentRetentionDays));
+        if (removed > 0) {
+            logger.info("🧹 Pruned {} sent outbox emails older than {} days", removed, sentRetentionDays);
+        }
+    }
+
+    // Called after an outbox write commits so new notifications go out without waiting for the poll
+    public void wakeUp() {
+        wakeRequested.set(true);
+        if (running.compareAndSet(false, true)) {
+            coordinator.execute(this::runDrain);
+        }
+    }
+
+    private void runDrain() {
+        try {
+            while (wakeRequested.getAndSet(false)) {
+                drain();
+            }
+        } catch (Exception e) {
+            logger.error("❌ Email outbox drain failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+            if (wakeRequested.get()) {
+                wakeUp();
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            // Rows already handed to the workers are still PENDING, so widen the page to look past them
+            int window = batchSize + inFlight.size();
+            List<EmailOutboxMessage> due = outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAscIdAsc(
+                "PENDING", LocalDateTime.now(), PageRequest.of(0, window));
+
+            int handedOff = 0;
+            for (EmailOutboxMessage message : due) {
+                if (!inFlight.add(message.getId())) {
+                    continue; // already queued or being sent by a worker
+                }
+                try {
+                    workers.execute(() -> deliverAndRelease(message));
+                    submitted.incrementAndGet();
+                    handedOff++;
+                } catch (RejectedExecutionException e) {
+                    inFlight.remove(message.getId());
+                    rejected.incrementAndGet();
+                    saturated.set(true);
+                    logger.warn("⏳ Email worker queue full ({} queued), deferring the rest of the outbox", workers.getQueue().size());
+                    return;
+                }
+            }
+
+            if (due.size() < window) {
+                return;
+            }
+            if (handedOff == 0) {
+                // A full page of rows the workers already hold; they wake us up again when they finish
+                saturated.set(true);
+                return;
+            }
+        }
+    }
+
+    private void deliverAndRelease(EmailOutboxMessage message) {
+        try {
+            // The coordinator's copy may predate an attempt that finished meanwhile, so re-read the row
+            outboxRepository.findById(message.getId())
+                .filter(fresh -> "PENDING".equals(fresh.getStatus()))
+                .filter(fresh -> !fresh.getNextAttemptAt().isAfter(LocalDateTime.now()))
+                .ifPresent(this::deliver);
+        } catch (Exception e) {
+            logger.error("❌ Could not record outbox result for {}: {}", message.getIdempotencyKey(), e.getMessage(), e);
+        } finally {
+            inFlight.remove(message.getId());
+            if (saturated.getAndSet(false)) {
+                wakeUp();
+            }
+        }
+    }
+
+    private void deliver(EmailOutboxMessage message) {
+        int attempt = message.getAttempts() + 1;
+        message.setAttempts(attempt);
+        try {
+            Order order = orderRepository.findById(message.getOrderId())
+                .orElseThrow(() -> new IllegalStateException("Order not found: " + message.getOrderId()));
+            send(message, order);
+
+            message.setStatus("SENT");
+            message.setSentAt(LocalDateTime.now());
+            message.setLastError(null);
+            sent.incrementAndGet();
+            logger.info("✅ Outbox email {} sent (attempt {})", message.getIdempotencyKey(), attempt);
+        } catch (Exception e) {
+            message.setLastError(truncate(e.getMessage()));
+            failed.incrementAndGet();
+            if (attempt >= maxAttempts) {
+                message.setStatus("DEAD");
+                deadLettered.incrementAndGet();
+                logger.error("☠️ Outbox email {} dead-lettered after {} attempts: {}",
+                    message.getIdempotencyKey(), attempt, e.getMessage());
+            } else {
+                Duration backoff = backoff(attempt);
+                message.setNextAttemptAt(LocalDateTime.now().plus(backoff));
+                logger.warn("⚠️ Outbox email {} failed (attempt {}), retrying in {}s: {}",
+                    message.getIdempotencyKey(), attempt, backoff.toSeconds(), e.getMessage());
+            }
+        }
+        outboxRepository.save(message);
+    }
+
+    private void send(EmailOutboxMessage message, Order order) {
+        boolean toCustomer = "customer".equals(message.getRecipient());
+        String to = toCustomer ? order.getCustomerEmail() : ADMIN_EMAIL;
+
+        switch (message.getEventType()) {
+            case EmailOutboxMessage.ORDER_PLACED -> {
+                if (toCustomer) emailService.sendOrderConfirmation(to, order);
+                else emailService.sendAdminNotification(to, order);
+            }
+            case EmailOutboxMessage.PRICE_SET -> {
+                if (toCustomer) emailService.sendPriceSetEmail(to, order);
+                else emailService.sendAdminPriceSetNotification(to, order);
+            }
+            case EmailOutboxMessage.CANCELLED -> {
+                if (toCustomer) emailService.sendOrderCancelledEmail(to, order);
+                else emailService.sendAdminCancellationNotification(to, order);
+            }
+            case EmailOutboxMessage.COMPLETED -> {
+                if (toCustomer) emailService.sendOrderCompletedEmail(to, order);
+                else emailService.sendAdminCompletionNotification(to, order);
+            }
+            default -> throw new IllegalStateException("Unknown outbox event type: " + message.getEventType());
+        }
+    }
+
+    private Duration backoff(int attempt) {
+        long seconds = initialBackoffSeconds << Math.min(attempt - 1, 20);
+        return Duration.ofSeconds(Math.min(seconds, maxBackoffSeconds));
+    }
+
+    private String truncate(String error) {
+        if (error == null) {
+            return "Unknown error";
+        }
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", outboxRepository.countByStatus("PENDING"));
+        stats.put("dead", outboxRepository.countByStatus("DEAD"));
+        stats.put("poolSize", poolSize);
+        stats.put("activeWorkers", workers.getActiveCount());
+        stats.put("queued", workers.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("submitted", submitted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("sent", sent.get());
+        stats.put("failedAttempts", failed.get());
+        stats.put("deadLettered", deadLettered.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coordinator.shutdown();
+        workers.shutdown();
+    }
+}
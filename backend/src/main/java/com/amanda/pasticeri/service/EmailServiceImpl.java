@@ -1,7 +1,7 @@
 package com.amanda.pasticeri.service;
 
 import com.amanda.pasticeri.model.Order;
-import com.amanda.pasticeri.util.UploadPathResolver;
+import jakarta.annotation.PostConstruct;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.slf4j.Logger;
@@ -15,16 +15,9 @@ import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.time.Duration;
-import java.util.ArrayList;
-import java.util.Base64;
-import java.util.List;
+import java.util.concurrent.Semaphore;
 
 @Service
 public class EmailServiceImpl implements EmailService {
@@ -37,6 +30,18 @@ public class EmailServiceImpl implements EmailService {
     @Autowired
     private EmailTemplateService emailTemplateService;
 
+    @Autowired
+    private ResendClient resendClient;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private InlineResourceCache inlineResourceCache;
+
+    @Autowired
+    private UploadRegistry uploadRegistry;
+
     @Value("${spring.mail.host:}")
     private String mailHost;
 
@@ -58,6 +63,22 @@ public class EmailServiceImpl implements EmailService {
     @Value("${app.mail.resend-from:Pasticeri Amanda <onboarding@resend.dev>}")
     private String resendFrom;
 
+    // ✅ Caps on simultaneous sends per provider, independent of the outbox worker pool size
+    @Value("${app.mail.smtp.max-concurrency:2}")
+    private int smtpMaxConcurrency;
+
+    @Value("${app.mail.resend.max-concurrency:4}")
+    private int resendMaxConcurrency;
+
+    private Semaphore smtpPermits;
+    private Semaphore resendPermits;
+
+    @PostConstruct
+    void initPermits() {
+        smtpPermits = new Semaphore(Math.max(1, smtpMaxConcurrency), true);
+        resendPermits = new Semaphore(Math.max(1, resendMaxConcurrency), true);
+    }
+
     @Override
     public void sendOrderConfirmation(String to, Order order) {
         String subject = "🍰 Your Pastiçeri Amanda Order Confirmation";
@@ -197,13 +218,10 @@ public class EmailServiceImpl implements EmailService {
             helper.setSubject(subject);
             helper.setText(htmlBody, true);
 
-            // Add logo
-            File logo = new File("src/main/resources/static/logoAmanda.jpg");
-            if (logo.exists()) {
-                helper.addInline("logoAmanda", logo);
-                logger.debug("✅ Logo added to email: {}", logo.getAbsolutePath());
-            } else {
-                logger.warn("⚠️ Logo file not found: {}", logo.getAbsolutePath());
+            // Add the logo and other shared inline images, only when the HTML actually references them
+            for (InlineResourceCache.InlineResource resource : inlineResourceCache.referencedBy(htmlBody)) {
+                helper.addInline(resource.contentId(), resource.dataSource());
+                logger.debug("✅ Inline resource {} added to email", resource.contentId());
             }
 
             // Add order images if available
@@ -219,8 +237,9 @@ public class EmailServiceImpl implements EmailService {
                         File imageFile = findUploadFile(trimmed);
                         if (imageFile != null && imageFile.exists()) {
                             try {
-                                helper.addInline("orderImage" + imageIndex, imageFile);
-                                logger.debug("✅ Order image {} added to email: {}", imageIndex, imageFile.getAbsolutePath());
+                                File preview = imageDerivativeService.emailThumbnail(imageFile);
+                                helper.addInline("orderImage" + imageIndex, preview);
+                                logger.debug("✅ Order image {} added to email: {}", imageIndex, preview.getAbsolutePath());
                                 imageIndex++;
                             } catch (Exception e) {
                                 logger.error("❌ Failed to add image {} to email: {}", imageIndex, e.getMessage(), e);
@@ -240,7 +259,12 @@ public class EmailServiceImpl implements EmailService {
             logger.info("   From: {}", mailUsername);
             logger.info("   To: {}", to);
             
-            mailSender.send(message);
+            acquire(smtpPermits, "SMTP");
+            try {
+                mailSender.send(message);
+            } finally {
+                smtpPermits.release();
+            }
             
             logger.info("═══════════════════════════════════════════════════════════");
             logger.info("✅✅✅ EMAIL SENT SUCCESSFULLY! ✅✅✅");
@@ -292,33 +316,24 @@ public class EmailServiceImpl implements EmailService {
         logger.info("   From: {}", resendFrom);
         logger.info("   To: {}", to);
 
-        String attachmentsJson = buildResendAttachmentsJson(order);
-        String payload = """
+        // Attachments are Base64-encoded from disk while the request is written, never held in memory whole
+        ResendPayload payload = new ResendPayload().text("""
             {
               "from": "%s",
               "to": ["%s"],
               "subject": "%s",
-              "html": "%s"%s
-            }
-            """.formatted(
+              "html": "%s\"""".formatted(
                 escapeJson(resendFrom),
                 escapeJson(to),
                 escapeJson(subject),
-                escapeJson(htmlBody),
-                attachmentsJson
-            );
-
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create("https://api.resend.com/emails"))
-            .timeout(Duration.ofSeconds(20))
-            .header("Authorization", "Bearer " + resendApiKey)
-            .header("Content-Type", "application/json")
-            .POST(HttpRequest.BodyPublishers.ofString(payload))
-            .build();
+                escapeJson(htmlBody)
+            ));
+        appendResendAttachments(payload, htmlBody, order);
+        payload.text("\n}\n");
 
+        acquire(resendPermits, "Resend");
         try {
-            HttpResponse<String> response = HttpClient.newHttpClient()
-                .send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = resendClient.send(payload.toBodyPublisher());
 
             if (response.statusCode() < 200 || response.statusCode() >= 300) {
                 logger.error("❌ Resend email failed with status {}: {}", response.statusCode(), response.body());
@@ -331,6 +346,17 @@ public class EmailServiceImpl implements EmailService {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException("Email sending through Resend was interrupted", e);
+        } finally {
+            resendPermits.release();
+        }
+    }
+
+    private void acquire(Semaphore permits, String provider) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a " + provider + " send slot", e);
         }
     }
 
@@ -338,13 +364,24 @@ public class EmailServiceImpl implements EmailService {
         return htmlBody.replaceAll("<img[^>]+src=\\\"cid:[^\\\"]+\\\"[^>]*>", "");
     }
 
-    private String buildResendAttachmentsJson(Order order) {
-        if (order == null || order.getImageUrls() == null || order.getImageUrls().isBlank()) {
-            return "";
+    private void appendResendAttachments(ResendPayload payload, String htmlBody, Order order) {
+        int attachments = 0;
+        for (InlineResourceCache.InlineResource resource : inlineResourceCache.referencedBy(htmlBody)) {
+            payload.text(attachmentSeparator(attachments++) + """
+                {
+                  "filename": "%s",
+                  "content_type": "%s",
+                  "content_id": "%s",
+                  "content": "%s"
+                }""".formatted(
+                    escapeJson(resource.fileName()),
+                    escapeJson(resource.contentType()),
+                    escapeJson(resource.contentId()),
+                    resource.base64()
+                ));
         }
 
-        List<String> attachments = new ArrayList<>();
-        String[] imageUrls = order.getImageUrls().split(",");
+        String[] imageUrls = order == null || order.getImageUrls() == null ? new String[0] : order.getImageUrls().split(",");
         int imageIndex = 1;
         for (String imageUrl : imageUrls) {
             if (imageUrl == null || imageUrl.isBlank()) {
@@ -358,67 +395,52 @@ public class EmailServiceImpl implements EmailService {
             }
 
             try {
-                String base64Content = Base64.getEncoder().encodeToString(Files.readAllBytes(imageFile.toPath()));
-                String contentType = Files.probeContentType(imageFile.toPath());
+                File preview = imageDerivativeService.emailThumbnail(imageFile);
+                String fileName = preview.equals(imageFile) ? imageFile.getName() : baseName(imageFile.getName()) + ".jpg";
+                String contentType = Files.probeContentType(preview.toPath());
                 if (contentType == null || contentType.isBlank()) {
                     contentType = "application/octet-stream";
                 }
 
-                attachments.add("""
+                payload.text(attachmentSeparator(attachments++) + """
                     {
                       "filename": "%s",
-                      "content": "%s",
                       "content_type": "%s",
-                      "content_id": "orderImage%d"
-                    }
-                    """.formatted(
-                        escapeJson(imageFile.getName()),
-                        base64Content,
+                      "content_id": "orderImage%d",
+                      "content": \"""".formatted(
+                        escapeJson(fileName),
                         escapeJson(contentType),
                         imageIndex
                     ));
+                payload.base64File(preview.toPath());
+                payload.text("\"\n}");
                 imageIndex++;
             } catch (IOException e) {
                 logger.warn("⚠️ Failed to read image attachment {}: {}", imageFile.getAbsolutePath(), e.getMessage());
             }
         }
 
-        if (attachments.isEmpty()) {
-            return "";
+        if (attachments > 0) {
+            payload.text("\n  ]");
+            logger.info("📎 Adding {} attachment(s) to Resend email ({} bytes streamed)", attachments, payload.contentLength());
         }
+    }
 
-        logger.info("📎 Adding {} order image attachment(s) to Resend email", attachments.size());
-        return ",\n  \"attachments\": [" + String.join(",", attachments) + "\n  ]";
+    private String attachmentSeparator(int attachmentsSoFar) {
+        return attachmentsSoFar == 0 ? ",\n  \"attachments\": [" : ",";
     }
 
-    private File findUploadFile(String imageUrl) {
-        if (imageUrl == null || !imageUrl.startsWith("/uploads/")) {
-            logger.warn("⚠️ Skipping non-upload image: {}", imageUrl);
-            return null;
-        }
+    private String baseName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
 
-        String currentDir = System.getProperty("user.dir");
-        String fileName = imageUrl.substring(9);
-        String uploadDir = UploadPathResolver.resolveUploadDirectory();
-        List<String> possiblePaths = List.of(
-            Path.of(uploadDir).resolve(fileName).toString(),
-            currentDir + imageUrl,
-            currentDir + "/backend" + imageUrl,
-            currentDir + "/uploads/" + fileName,
-            "uploads/" + fileName,
-            currentDir + "/backend/uploads/" + fileName
-        );
-
-        for (String path : possiblePaths) {
-            File testFile = new File(path);
-            logger.debug("🔍 Testing upload path: {}", testFile.getAbsolutePath());
-            if (testFile.exists() && testFile.isFile()) {
-                logger.debug("✅ Found upload file at: {}", testFile.getAbsolutePath());
-                return testFile;
-            }
+    private File findUploadFile(String imageUrl) {
+        File file = uploadRegistry.resolve(imageUrl).orElse(null);
+        if (file == null) {
+            logger.warn("⚠️ Upload not found for image: {}", imageUrl);
         }
-
-        return null;
+        return file;
     }
 
     private String escapeJson(String value) {
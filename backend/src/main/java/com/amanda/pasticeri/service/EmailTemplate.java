@@ -0,0 +1,96 @@
+package com.amanda.pasticeri.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An HTML fragment with named {@code {{slot}}} placeholders, split once into literal segments when it is
+ * compiled. Rendering appends the literals and slot contents straight into the caller's
+ * {@link StringBuilder}; there is no format-string parsing or intermediate string per fragment.
+ */
+final class EmailTemplate {
+
+    /** Writes one slot's content into the output. */
+    @FunctionalInterface
+    interface Slot {
+        void writeTo(StringBuilder out);
+    }
+
+    private static final Slot EMPTY = out -> { };
+
+    private final String[] literals;
+    private final int[] slotOrder; // slotOrder[i] is the argument written after literals[i]
+
+    private EmailTemplate(String[] literals, int[] slotOrder) {
+        this.literals = literals;
+        this.slotOrder = slotOrder;
+    }
+
+    /**
+     * Compiles {@code source}; {@code slotNames} fixes the order in which {@link #render} takes its slots.
+     * A placeholder may appear more than once. Unknown placeholders fail fast at startup.
+     */
+    static EmailTemplate compile(String source, String... slotNames) {
+        List<String> names = Arrays.asList(slotNames);
+        List<String> literals = new ArrayList<>();
+        List<Integer> order = new ArrayList<>();
+
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                literals.add(source.substring(position));
+                break;
+            }
+            int close = source.indexOf("}}", open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at " + open);
+            }
+            String name = source.substring(open + 2, close).trim();
+            int index = names.indexOf(name);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown placeholder {{" + name + "}}");
+            }
+            literals.add(source.substring(position, open));
+            order.add(index);
+            position = close + 2;
+        }
+
+        return new EmailTemplate(
+            literals.toArray(new String[0]),
+            order.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    void render(StringBuilder out, Slot... slots) {
+        for (int i = 0; i < slotOrder.length; i++) {
+            out.append(literals[i]);
+            slots[slotOrder[i]].writeTo(out);
+        }
+        out.append(literals[literals.length - 1]);
+    }
+
+    /** Plain text, HTML-escaped while it is appended. */
+    static Slot text(String value) {
+        return value == null || value.isEmpty() ? EMPTY : out -> escape(out, value);
+    }
+
+    /** Trusted markup or attribute values that are appended as-is. */
+    static Slot raw(String value) {
+        return value == null || value.isEmpty() ? EMPTY : out -> out.append(value);
+    }
+
+    static void escape(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+}
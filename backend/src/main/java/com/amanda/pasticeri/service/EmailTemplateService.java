@@ -1,309 +1,390 @@
 package com.amanda.pasticeri.service;
 
 import com.amanda.pasticeri.model.Order;
+import com.amanda.pasticeri.service.EmailTemplate.Slot;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import static com.amanda.pasticeri.service.EmailTemplate.raw;
+import static com.amanda.pasticeri.service.EmailTemplate.text;
+
+/**
+ * Order and account emails. Every fragment below is compiled once into an {@link EmailTemplate}, and a
+ * page is rendered in a single pass into a per-thread buffer that is reused across emails.
+ */
 @Service
 public class EmailTemplateService {
 
-    public String getOrderConfirmationTemplate(Order order) {
-        String intro = isCustomOrder(order)
-            ? "We received your custom request and our team will review every detail before confirming the final price."
-            : "Your order has been received and reserved for the selected time.";
+    private static final EmailTemplate LAYOUT = EmailTemplate.compile("""
+        <!DOCTYPE html>
+        <html>
+        <head>
+          <meta charset="UTF-8">
+          <meta name="viewport" content="width=device-width, initial-scale=1.0">
+          <title>Pasticeri Amanda</title>
+        </head>
+        <body style="margin:0; padding:0; background:#f7f0e4; font-family: Georgia, 'Times New Roman', serif; color:#2d2419;">
+          <div style="display:none; max-height:0; overflow:hidden;">{{eyebrow}} - {{title}}</div>
+          <table role="presentation" width="100%" cellspacing="0" cellpadding="0" style="background:#f7f0e4; padding:28px 12px;">
+            <tr>
+              <td align="center">
+                <table role="presentation" width="100%" cellspacing="0" cellpadding="0" style="max-width:640px; background:#fffdf7; border:1px solid #e6d5b3; box-shadow:0 18px 48px rgba(79,53,22,.13);">
+                  <tr>
+                    <td style="padding:34px 28px 26px; text-align:center; background:#fffaf0; border-bottom:1px solid #ead9b7;">
+                      <div style="font-size:26px; color:#b88a2c; line-height:1;">♛</div>
+                      <div style="font-size:28px; letter-spacing:.14em; text-transform:uppercase; color:#2d2419; font-weight:700; margin-top:8px;">Pasticeri Amanda</div>
+                      <div style="font-size:11px; letter-spacing:.38em; text-transform:uppercase; color:#9c7a38; margin-top:8px;">Est. 2019</div>
+                    </td>
+                  </tr>
+                  <tr>
+                    <td style="padding:34px 34px 18px;">
+                      <div style="font-family:Arial, sans-serif; font-size:11px; letter-spacing:.22em; text-transform:uppercase; color:#b88a2c; font-weight:700;">{{eyebrow}}</div>
+                      <h1 style="margin:12px 0 12px; font-size:31px; line-height:1.18; color:#2d2419; font-weight:700;">{{title}}</h1>
+                      <p style="margin:0; font-family:Arial, sans-serif; font-size:15px; line-height:1.7; color:#6b5a44;">{{intro}}</p>
+                    </td>
+                  </tr>
+                  <tr>
+                    <td style="padding:8px 34px 34px;">
+                      {{content}}
+                      <div style="margin-top:30px; padding-top:22px; border-top:1px solid #ead9b7; text-align:center; font-family:Arial, sans-serif; color:#7b6a53;">
+                        <div style="font-family:Georgia, 'Times New Roman', serif; color:#2d2419; font-size:18px;">{{signoff}}</div>
+                        <div style="margin-top:12px; font-size:13px; line-height:1.7;">Rruga Lefter Talo<br>+355 69 352 0462<br>pasticeriamanda@gmail.com</div>
+                      </div>
+                    </td>
+                  </tr>
+                </table>
+              </td>
+            </tr>
+          </table>
+        </body>
+        </html>
+        """, "eyebrow", "title", "intro", "content", "signoff");
+
+    // Cards and the image section are written open/close so an empty body can be rolled back
+    private static final EmailTemplate CARD_OPEN = EmailTemplate.compile("""
+        <div style="margin:18px 0; padding:22px; background:#fffaf0; border:1px solid #ead9b7;">
+          <div style="font-family:Arial, sans-serif; font-size:11px; letter-spacing:.2em; text-transform:uppercase; color:#b88a2c; font-weight:700; margin-bottom:12px;">{{title}}</div>
+          <table role="presentation" width="100%" cellspacing="0" cellpadding="0" style="font-family:Arial, sans-serif;">""", "title");
+
+    private static final EmailTemplate CARD_CLOSE = EmailTemplate.compile("""
+        </table>
+        </div>
+        """);
+
+    private static final EmailTemplate ROW = EmailTemplate.compile("""
+        <tr>
+          <td style="padding:8px 0; color:#8a765b; font-size:13px; width:34%; vertical-align:top;">{{label}}</td>
+          <td style="padding:8px 0; color:#2d2419; font-size:14px; line-height:1.55; font-weight:600;">{{value}}</td>
+        </tr>
+        """, "label", "value");
+
+    private static final EmailTemplate PRICE_PANEL = EmailTemplate.compile("""
+        <div style="margin:18px 0; padding:24px; background:#2d2419; color:#fffdf7; text-align:center; border:1px solid #b88a2c;">
+          <div style="font-family:Arial, sans-serif; font-size:11px; letter-spacing:.24em; text-transform:uppercase; color:#e6c778;">Final price</div>
+          <div style="font-size:32px; margin-top:8px; font-weight:700;">ALL {{price}}</div>
+        </div>
+        """, "price");
+
+    private static final EmailTemplate STATUS_PANEL = EmailTemplate.compile("""
+        <div style="margin:18px 0; padding:24px; background:{{background}}; color:#fffdf7; text-align:center; border:1px solid #b88a2c;">
+          <div style="font-family:Arial, sans-serif; font-size:11px; letter-spacing:.24em; text-transform:uppercase; color:#e6c778;">{{title}}</div>
+          <div style="font-family:Arial, sans-serif; font-size:14px; line-height:1.7; margin-top:10px;">{{body}}</div>
+        </div>
+        """, "background", "title", "body");
+
+    private static final EmailTemplate IMAGE_SECTION_OPEN = EmailTemplate.compile("""
+        <div style="margin:18px 0; padding:22px; background:#fffaf0; border:1px solid #ead9b7;">
+          <div style="font-family:Arial, sans-serif; font-size:11px; letter-spacing:.2em; text-transform:uppercase; color:#b88a2c; font-weight:700; margin-bottom:14px;">Design images</div>
+          <div style="text-align:center;">""");
+
+    private static final EmailTemplate IMAGE_SECTION_CLOSE = EmailTemplate.compile("""
+        </div>
+          <p style="font-family:Arial, sans-serif; font-size:12px; color:#7b6a53; line-height:1.6; margin:14px 0 0;">{{hint}}</p>
+        </div>
+        """, "hint");
+
+    private static final EmailTemplate IMAGE = EmailTemplate.compile("""
+        <img src="cid:orderImage{{index}}" alt="Order design" style="width:150px; max-width:100%; height:auto; border:1px solid #d7bd7a; margin:6px; display:inline-block;">
+        """, "index");
+
+    private static final EmailTemplate LINKED_IMAGE = EmailTemplate.compile(
+        "<a href=\"{{href}}\">{{image}}</a>", "href", "image");
+
+    private static final EmailTemplate NOTE = EmailTemplate.compile("""
+        <div style="margin:18px 0; padding:20px; background:#fbf6ec; border-left:4px solid #b88a2c; font-family:Arial, sans-serif;">
+          <div style="font-size:13px; font-weight:700; color:#2d2419; margin-bottom:6px;">{{title}}</div>
+          <div style="font-size:14px; line-height:1.7; color:#6b5a44;">{{body}}</div>
+        </div>
+        """, "title", "body");
+
+    private static final EmailTemplate RESET_BUTTON = EmailTemplate.compile("""
+        <div style="text-align:center; margin: 28px 0;">
+          <a href="{{link}}" style="background:#b88a2c; color:#fffdf7; text-decoration:none; padding:14px 26px; border-radius:999px; font-weight:700; letter-spacing:.04em; display:inline-block;">Reset password</a>
+        </div>
+        """, "link");
+
+    private static final int INITIAL_BUFFER = 16 * 1024;
+    private static final int MAX_RETAINED_BUFFER = 128 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(INITIAL_BUFFER));
+
+    // Public origin of /uploads (e.g. https://api.pasticeriamanda.com); when set, previews link to the full-size design
+    @Value("${app.mail.image-link-base-url:}")
+    private String imageLinkBaseUrl;
 
-        return layout(
+    public String getOrderConfirmationTemplate(Order order) {
+        boolean custom = isCustomOrder(order);
+        return page(
             "Order received",
-            "Thank you, " + esc(order.getCustomerName()),
-            intro,
-            orderDetails(order, true)
-                + imageSection(order)
-                + note("Next step", isCustomOrder(order)
+            "Thank you, " + nullToEmpty(order.getCustomerName()),
+            custom
+                ? "We received your custom request and our team will review every detail before confirming the final price."
+                : "Your order has been received and reserved for the selected time.",
+            out -> {
+                orderDetails(out, order, true);
+                imageSection(out, order);
+                note(out, "Next step", custom
                     ? "We will contact you shortly with the final price confirmation."
-                    : "If pickup or delivery details need attention, we will contact you directly."),
+                    : "If pickup or delivery details need attention, we will contact you directly.");
+            },
             "With love, Pasticeri Amanda"
         );
     }
 
     public String getNewOrderNotificationTemplate(Order order) {
-        return layout(
+        boolean custom = isCustomOrder(order);
+        return page(
             "Admin notice",
             "New order received",
             "A customer order needs attention in the admin panel.",
-            customerDetails(order)
-                + orderDetails(order, true)
-                + imageSection(order)
-                + note(isCustomOrder(order) ? "Action needed" : "Menu order",
-                    isCustomOrder(order)
+            out -> {
+                customerDetails(out, order);
+                orderDetails(out, order, true);
+                imageSection(out, order);
+                note(out, custom ? "Action needed" : "Menu order",
+                    custom
                         ? "Review the design, flavour, date, and set the final price."
-                        : "Prepare this order for the scheduled pickup or delivery time."),
+                        : "Prepare this order for the scheduled pickup or delivery time.");
+            },
             "Pasticeri Amanda Admin"
         );
     }
 
     public String getAdminPriceSetTemplate(Order order) {
-        return layout(
+        return page(
             "Admin confirmation",
             "Price was set",
             "The customer has been sent the confirmed price for this order.",
-            customerDetails(order)
-                + orderDetails(order, true)
-                + pricePanel(order)
-                + imageSection(order)
-                + note("Admin status", "The order is now marked pending and ready for production follow-up."),
+            out -> {
+                customerDetails(out, order);
+                orderDetails(out, order, true);
+                pricePanel(out, order);
+                imageSection(out, order);
+                note(out, "Admin status", "The order is now marked pending and ready for production follow-up.");
+            },
             "Pasticeri Amanda Admin"
         );
     }
 
     public String getAdminOrderCancelledTemplate(Order order) {
-        return layout(
+        return page(
             "Admin alert",
             "Order cancelled",
             "This order has been cancelled and should no longer be prepared.",
-            customerDetails(order)
-                + orderDetails(order, true)
-                + imageSection(order)
-                + statusPanel("Cancelled", "#7f1d1d", "No further production action is needed unless the customer contacts the shop."),
+            out -> {
+                customerDetails(out, order);
+                orderDetails(out, order, true);
+                imageSection(out, order);
+                statusPanel(out, "Cancelled", "#7f1d1d", "No further production action is needed unless the customer contacts the shop.");
+            },
             "Pasticeri Amanda Admin"
         );
     }
 
     public String getAdminOrderCompletedTemplate(Order order) {
-        return layout(
+        return page(
             "Admin confirmation",
             "Order completed",
             "The order has been marked complete and the customer has been notified.",
-            customerDetails(order)
-                + orderDetails(order, true)
-                + pricePanel(order)
-                + statusPanel("Completed", "#1f5135", "This order can be archived with completed orders."),
+            out -> {
+                customerDetails(out, order);
+                orderDetails(out, order, true);
+                pricePanel(out, order);
+                statusPanel(out, "Completed", "#1f5135", "This order can be archived with completed orders.");
+            },
             "Pasticeri Amanda Admin"
         );
     }
 
     public String getOrderCancelledTemplate(Order order) {
-        return layout(
+        return page(
             "Order update",
             "Your order was cancelled",
             "This is a confirmation that the order below is no longer active.",
-            orderDetails(order, false)
-                + note("Cancelled", "If this was a mistake, please contact us and we will help you place a new order."),
+            out -> {
+                orderDetails(out, order, false);
+                note(out, "Cancelled", "If this was a mistake, please contact us and we will help you place a new order.");
+            },
             "Pasticeri Amanda"
         );
     }
 
     public String getPriceSetTemplate(Order order) {
-        return layout(
+        return page(
             "Price confirmation",
             "Your final price is ready",
             "We reviewed your custom request and prepared the confirmed price.",
-            orderDetails(order, true)
-                + pricePanel(order)
-                + imageSection(order)
-                + note("Confirmed", "Your order is now ready for production. We will contact you if any extra detail is needed."),
+            out -> {
+                orderDetails(out, order, true);
+                pricePanel(out, order);
+                imageSection(out, order);
+                note(out, "Confirmed", "Your order is now ready for production. We will contact you if any extra detail is needed.");
+            },
             "With love, Pasticeri Amanda"
         );
     }
 
     public String getOrderCompletedTemplate(Order order) {
-        return layout(
+        return page(
             "Order complete",
             "Your order is ready",
             "Thank you for choosing Pasticeri Amanda. Your order has been completed.",
-            orderDetails(order, true)
-                + pricePanel(order)
-                + note("Thank you", "We hope your celebration feels as beautiful as it tastes."),
+            out -> {
+                orderDetails(out, order, true);
+                pricePanel(out, order);
+                note(out, "Thank you", "We hope your celebration feels as beautiful as it tastes.");
+            },
             "With love, Pasticeri Amanda"
         );
     }
 
     public String getPasswordResetTemplate(String resetLink) {
-        return layout(
+        return page(
             "Account security",
             "Reset your password",
             "We received a request to reset your Pasticeri Amanda account password.",
-            """
-                <div style="text-align:center; margin: 28px 0;">
-                  <a href="%s" style="background:#b88a2c; color:#fffdf7; text-decoration:none; padding:14px 26px; border-radius:999px; font-weight:700; letter-spacing:.04em; display:inline-block;">Reset password</a>
-                </div>
-                """.formatted(esc(resetLink))
-                + note("Security note", "This link is intended only for you. If you did not request it, you can ignore this email."),
+            out -> {
+                RESET_BUTTON.render(out, text(resetLink));
+                note(out, "Security note", "This link is intended only for you. If you did not request it, you can ignore this email.");
+            },
             "Pasticeri Amanda"
         );
     }
 
-    private String layout(String eyebrow, String title, String intro, String content, String signoff) {
-        return """
-            <!DOCTYPE html>
-            <html>
-            <head>
-              <meta charset="UTF-8">
-              <meta name="viewport" content="width=device-width, initial-scale=1.0">
-              <title>Pasticeri Amanda</title>
-            </head>
-            <body style="margin:0; padding:0; background:#f7f0e4; font-family: Georgia, 'Times New Roman', serif; color:#2d2419;">
-              <div style="display:none; max-height:0; overflow:hidden;">%s - %s</div>
-              <table role="presentation" width="100%%" cellspacing="0" cellpadding="0" style="background:#f7f0e4; padding:28px 12px;">
-                <tr>
-                  <td align="center">
-                    <table role="presentation" width="100%%" cellspacing="0" cellpadding="0" style="max-width:640px; background:#fffdf7; border:1px solid #e6d5b3; box-shadow:0 18px 48px rgba(79,53,22,.13);">
-                      <tr>
-                        <td style="padding:34px 28px 26px; text-align:center; background:#fffaf0; border-bottom:1px solid #ead9b7;">
-                          <div style="font-size:26px; color:#b88a2c; line-height:1;">♛</div>
-                          <div style="font-size:28px; letter-spacing:.14em; text-transform:uppercase; color:#2d2419; font-weight:700; margin-top:8px;">Pasticeri Amanda</div>
-                          <div style="font-size:11px; letter-spacing:.38em; text-transform:uppercase; color:#9c7a38; margin-top:8px;">Est. 2019</div>
-                        </td>
-                      </tr>
-                      <tr>
-                        <td style="padding:34px 34px 18px;">
-                          <div style="font-family:Arial, sans-serif; font-size:11px; letter-spacing:.22em; text-transform:uppercase; color:#b88a2c; font-weight:700;">%s</div>
-                          <h1 style="margin:12px 0 12px; font-size:31px; line-height:1.18; color:#2d2419; font-weight:700;">%s</h1>
-                          <p style="margin:0; font-family:Arial, sans-serif; font-size:15px; line-height:1.7; color:#6b5a44;">%s</p>
-                        </td>
-                      </tr>
-                      <tr>
-                        <td style="padding:8px 34px 34px;">
-                          %s
-                          <div style="margin-top:30px; padding-top:22px; border-top:1px solid #ead9b7; text-align:center; font-family:Arial, sans-serif; color:#7b6a53;">
-                            <div style="font-family:Georgia, 'Times New Roman', serif; color:#2d2419; font-size:18px;">%s</div>
-                            <div style="margin-top:12px; font-size:13px; line-height:1.7;">Rruga Lefter Talo<br>+355 69 352 0462<br>pasticeriamanda@gmail.com</div>
-                          </div>
-                        </td>
-                      </tr>
-                    </table>
-                  </td>
-                </tr>
-              </table>
-            </body>
-            </html>
-            """.formatted(esc(eyebrow), esc(title), esc(eyebrow), esc(title), esc(intro), content, esc(signoff));
+    private String page(String eyebrow, String title, String intro, Slot content, String signoff) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        LAYOUT.render(out, text(eyebrow), text(title), text(intro), content, text(signoff));
+        String html = out.toString();
+        if (out.capacity() > MAX_RETAINED_BUFFER) {
+            // Don't let one huge order pin a large buffer to a worker thread forever
+            BUFFER.set(new StringBuilder(INITIAL_BUFFER));
+        }
+        return html;
     }
 
-    private String customerDetails(Order order) {
-        return card("Customer", rows(
-            row("Name", order.getCustomerName()),
-            row("Email", order.getCustomerEmail()),
-            row("Phone", order.getCustomerPhone())
-        ));
+    private void customerDetails(StringBuilder out, Order order) {
+        int start = out.length();
+        CARD_OPEN.render(out, text("Customer"));
+        int body = out.length();
+        row(out, "Name", order.getCustomerName());
+        row(out, "Email", order.getCustomerEmail());
+        row(out, "Phone", order.getCustomerPhone());
+        closeCard(out, start, body);
     }
 
-    private String orderDetails(Order order, boolean includePrice) {
-        String price = includePrice ? row("Price", money(order)) : "";
-        return card("Order details", rows(
-            row("Order", order.getId() == null ? "" : "#" + order.getId()),
-            row("Product", order.getProductName()),
-            row("Quantity", String.valueOf(order.getNumberOfPersons())),
-            row("Flavour", order.getFlavour()),
-            row("Description", order.getCustomNote()),
-            row("Order date", order.getOrderDate() == null ? "" : order.getOrderDate().toString()),
-            deliveryRows(order),
-            price
-        ));
+    private void orderDetails(StringBuilder out, Order order, boolean includePrice) {
+        int start = out.length();
+        CARD_OPEN.render(out, text("Order details"));
+        int body = out.length();
+        row(out, "Order", order.getId() == null ? "" : "#" + order.getId());
+        row(out, "Product", order.getProductName());
+        row(out, "Quantity", String.valueOf(order.getNumberOfPersons()));
+        row(out, "Flavour", order.getFlavour());
+        row(out, "Description", order.getCustomNote());
+        row(out, "Order date", order.getOrderDate() == null ? "" : order.getOrderDate().toString());
+        deliveryRows(out, order);
+        if (includePrice) {
+            row(out, "Price", money(order));
+        }
+        closeCard(out, start, body);
     }
 
-    private String pricePanel(Order order) {
-        if (order.getTotalPrice() == null) {
-            return "";
+    private void closeCard(StringBuilder out, int start, int body) {
+        if (out.length() == body) {
+            out.setLength(start);
+            return;
         }
+        CARD_CLOSE.render(out);
+    }
 
-        return """
-            <div style="margin:18px 0; padding:24px; background:#2d2419; color:#fffdf7; text-align:center; border:1px solid #b88a2c;">
-              <div style="font-family:Arial, sans-serif; font-size:11px; letter-spacing:.24em; text-transform:uppercase; color:#e6c778;">Final price</div>
-              <div style="font-size:32px; margin-top:8px; font-weight:700;">ALL %s</div>
-            </div>
-            """.formatted(esc(order.getTotalPrice().toString()));
+    private void pricePanel(StringBuilder out, Order order) {
+        if (order.getTotalPrice() == null) {
+            return;
+        }
+        PRICE_PANEL.render(out, text(order.getTotalPrice().toString()));
     }
 
-    private String statusPanel(String title, String backgroundColor, String body) {
-        return """
-            <div style="margin:18px 0; padding:24px; background:%s; color:#fffdf7; text-align:center; border:1px solid #b88a2c;">
-              <div style="font-family:Arial, sans-serif; font-size:11px; letter-spacing:.24em; text-transform:uppercase; color:#e6c778;">%s</div>
-              <div style="font-family:Arial, sans-serif; font-size:14px; line-height:1.7; margin-top:10px;">%s</div>
-            </div>
-            """.formatted(backgroundColor, esc(title), esc(body));
+    private void statusPanel(StringBuilder out, String title, String backgroundColor, String body) {
+        STATUS_PANEL.render(out, raw(backgroundColor), text(title), text(body));
     }
 
-    private String imageSection(Order order) {
+    private void imageSection(StringBuilder out, Order order) {
         if (order.getImageUrls() == null || order.getImageUrls().isBlank()) {
-            return "";
+            return;
         }
 
-        StringBuilder images = new StringBuilder();
-        String[] imageUrls = order.getImageUrls().split(",");
+        int start = out.length();
+        IMAGE_SECTION_OPEN.render(out);
         int imageIndex = 1;
-        for (String imageUrl : imageUrls) {
+        for (String imageUrl : order.getImageUrls().split(",")) {
             if (imageUrl != null && imageUrl.trim().startsWith("/uploads/")) {
-                images.append("""
-                    <img src="cid:orderImage%d" alt="Order design" style="width:150px; max-width:100%%; height:auto; border:1px solid #d7bd7a; margin:6px; display:inline-block;">
-                    """.formatted(imageIndex));
+                int index = imageIndex;
+                Slot preview = o -> IMAGE.render(o, i -> i.append(index));
+                if (hasImageLinks()) {
+                    LINKED_IMAGE.render(out, text(originalImageUrl(imageUrl.trim())), preview);
+                } else {
+                    preview.writeTo(out);
+                }
                 imageIndex++;
             }
         }
 
-        if (images.length() == 0) {
-            return "";
+        if (imageIndex == 1) {
+            out.setLength(start);
+            return;
         }
-
-        return """
-            <div style="margin:18px 0; padding:22px; background:#fffaf0; border:1px solid #ead9b7;">
-              <div style="font-family:Arial, sans-serif; font-size:11px; letter-spacing:.2em; text-transform:uppercase; color:#b88a2c; font-weight:700; margin-bottom:14px;">Design images</div>
-              <div style="text-align:center;">%s</div>
-              <p style="font-family:Arial, sans-serif; font-size:12px; color:#7b6a53; line-height:1.6; margin:14px 0 0;">If the preview is hidden by your email app, the uploaded design is included as an attachment.</p>
-            </div>
-            """.formatted(images.toString());
+        IMAGE_SECTION_CLOSE.render(out, raw(hasImageLinks()
+            ? "Previews are reduced in size; tap one to open the full-resolution design."
+            : "If the preview is hidden by your email app, the uploaded design is included as an attachment."));
     }
 
-    private String note(String title, String body) {
-        return """
-            <div style="margin:18px 0; padding:20px; background:#fbf6ec; border-left:4px solid #b88a2c; font-family:Arial, sans-serif;">
-              <div style="font-size:13px; font-weight:700; color:#2d2419; margin-bottom:6px;">%s</div>
-              <div style="font-size:14px; line-height:1.7; color:#6b5a44;">%s</div>
-            </div>
-            """.formatted(esc(title), esc(body));
+    private boolean hasImageLinks() {
+        return imageLinkBaseUrl != null && !imageLinkBaseUrl.isBlank();
     }
 
-    private String card(String title, String rows) {
-        if (rows == null || rows.isBlank()) {
-            return "";
-        }
-
-        return """
-            <div style="margin:18px 0; padding:22px; background:#fffaf0; border:1px solid #ead9b7;">
-              <div style="font-family:Arial, sans-serif; font-size:11px; letter-spacing:.2em; text-transform:uppercase; color:#b88a2c; font-weight:700; margin-bottom:12px;">%s</div>
-              <table role="presentation" width="100%%" cellspacing="0" cellpadding="0" style="font-family:Arial, sans-serif;">%s</table>
-            </div>
-            """.formatted(esc(title), rows);
+    private String originalImageUrl(String imageUrl) {
+        String base = imageLinkBaseUrl.endsWith("/") ? imageLinkBaseUrl.substring(0, imageLinkBaseUrl.length() - 1) : imageLinkBaseUrl;
+        return base + imageUrl;
     }
 
-    private String rows(String... rows) {
-        StringBuilder builder = new StringBuilder();
-        for (String row : rows) {
-            if (row != null && !row.isBlank()) {
-                builder.append(row);
-            }
-        }
-        return builder.toString();
+    private void note(StringBuilder out, String title, String body) {
+        NOTE.render(out, text(title), text(body));
     }
 
-    private String row(String label, String value) {
+    private void row(StringBuilder out, String label, String value) {
         if (value == null || value.isBlank()) {
-            return "";
+            return;
         }
-
-        return """
-            <tr>
-              <td style="padding:8px 0; color:#8a765b; font-size:13px; width:34%%; vertical-align:top;">%s</td>
-              <td style="padding:8px 0; color:#2d2419; font-size:14px; line-height:1.55; font-weight:600;">%s</td>
-            </tr>
-            """.formatted(esc(label), esc(value));
+        ROW.render(out, text(label), text(value));
     }
 
-    private String deliveryRows(Order order) {
+    private void deliveryRows(StringBuilder out, Order order) {
         if (order.getDeliveryDateTime() == null) {
-            return "";
+            return;
         }
 
-        return row("Delivery date", order.getDeliveryDateTime().toLocalDate().toString())
-            + row("Delivery time", order.getDeliveryDateTime().toLocalTime().toString().substring(0, 5));
+        row(out, "Delivery date", order.getDeliveryDateTime().toLocalDate().toString());
+        row(out, "Delivery time", order.getDeliveryDateTime().toLocalTime().toString().substring(0, 5));
     }
 
     private String money(Order order) {
@@ -318,16 +399,7 @@ public class EmailTemplateService {
             || "custom".equals(order.getOrderType());
     }
 
-    private String esc(String value) {
-        if (value == null) {
-            return "";
-        }
-
-        return value
-            .replace("&", "&amp;")
-            .replace("<", "&lt;")
-            .replace(">", "&gt;")
-            .replace("\"", "&quot;")
-            .replace("'", "&#39;");
+    private String nullToEmpty(String value) {
+        return value == null ? "" : value;
     }
 }
@@ -0,0 +1,259 @@
+package com.amanda.pasticeri.service;
+
+import com.amanda.pasticeri.util.UploadPathResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Produces size-bounded derivatives of uploads: JPEG previews of customer uploads for order emails, and
+ * the fixed-width variants behind product and feed {@code srcset}s. Derivatives are cached on disk under
+ * the SHA-256 of the original, so the customer and admin copies of every notification share one preview
+ * and every later request for a variant costs a file lookup.
+ */
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    @Value("${app.mail.thumbnail.max-dimension:800}")
+    private int maxDimension;
+
+    @Value("${app.mail.thumbnail.quality:0.8}")
+    private float quality;
+
+    @Value("${app.mail.thumbnail.dir:}")
+    private String thumbnailDir;
+
+    // path -> content hash with the size and mtime it was computed for, so unchanged uploads are not
+    // re-hashed on every email; a changed file replaces its entry instead of adding one
+    private final Map<String, FileHash> hashCache = new ConcurrentHashMap<>();
+    // Hashes (or hash@width.format for variants) of uploads that are used as-is
+    private final Set<String> passThrough = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Returns a cached preview of {@code original} no larger than the configured bound, or the original
+     * itself when it is already small enough or is not a format ImageIO can decode.
+     */
+    public File emailThumbnail(File original) {
+        try {
+            String hash = contentHash(original);
+            Path target = resolveThumbnailDir().resolve(hash + "-" + maxDimension + ".jpg");
+            if (passThrough.contains(hash)) {
+                return original;
+            }
+            if (Files.exists(target)) {
+                return target.toFile();
+            }
+
+            BufferedImage image = readScaledDown(original, maxDimension, maxDimension);
+            if (image == null) {
+                return original;
+            }
+            if (image.getWidth() <= maxDimension && image.getHeight() <= maxDimension && isJpeg(original)) {
+                passThrough.add(hash);
+                return original;
+            }
+
+            writeImage(resize(image, maxDimension, maxDimension, false), target, "jpeg");
+            logger.info("🖼️ Email preview created for {} ({} KB -> {} KB)", original.getName(),
+                original.length() / 1024, Files.size(target) / 1024);
+            return target.toFile();
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not create email preview for {}: {}", original.getName(), e.getMessage());
+            return original;
+        }
+    }
+
+    /**
+     * Returns a cached copy of {@code original} scaled down to {@code width} pixels wide, encoded as
+     * {@code format} ("jpeg", or "webp" when an ImageIO WebP writer is installed). Images with transparency
+     * stay PNG so product cut-outs keep their background. The original is returned when it is already
+     * narrow enough or cannot be decoded, so callers never upscale.
+     */
+    public File widthVariant(File original, String hash, int width, String format) throws IOException {
+        Path dir = resolveVariantDir().resolve(String.valueOf(width));
+        for (String extension : List.of(extension(format), "png")) {
+            Path cached = dir.resolve(hash + "." + extension);
+            if (Files.exists(cached)) {
+                return cached.toFile();
+            }
+        }
+        // Whether the original can stand in depends on the requested format, so it is part of the key
+        String passThroughKey = hash + "@" + width + "." + format;
+        if (passThrough.contains(passThroughKey)) {
+            return original;
+        }
+
+        BufferedImage image = readScaledDown(original, width, Integer.MAX_VALUE);
+        // Already narrow enough: re-encoding only pays off for opaque non-JPEG sources (e.g. PNG photos)
+        if (image == null || (image.getWidth() <= width && (image.getColorModel().hasAlpha()
+                || ("jpeg".equals(format) && isJpeg(original))))) {
+            passThrough.add(passThroughKey);
+            return original;
+        }
+
+        boolean alpha = image.getColorModel().hasAlpha();
+        String outputFormat = alpha ? "png" : format;
+        Path target = dir.resolve(hash + "." + extension(outputFormat));
+        writeImage(resize(image, width, Integer.MAX_VALUE, alpha), target, outputFormat);
+        logger.info("🖼️ {}px variant created for {} ({} KB -> {} KB)", width, original.getName(),
+            original.length() / 1024, Files.size(target) / 1024);
+        return target.toFile();
+    }
+
+    public static boolean canWrite(String format) {
+        return ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    // Decodes with source subsampling so a 12MP photo never needs a full-resolution raster
+    private BufferedImage readScaledDown(File file, int maxWidth, int maxHeight) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                double scale = Math.min((double) maxWidth / reader.getWidth(0), (double) maxHeight / reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Keep at least twice the target resolution so the final resize still has detail to work with
+                int step = Math.max(1, (int) (1 / (scale * 2)));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage resize(BufferedImage source, int maxWidth, int maxHeight, boolean keepAlpha) {
+        double scale = Math.min(1.0, Math.min((double) maxWidth / source.getWidth(), (double) maxHeight / source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage target = new BufferedImage(width, height, keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            if (!keepAlpha) {
+                // JPEG has no alpha; flatten transparent PNGs onto white instead of black
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+            }
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private void writeImage(BufferedImage image, Path target, String format) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "preview-", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if (param.canWriteCompressed() && !"png".equals(format)) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                    param.setCompressionQuality(quality);
+                }
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            // Two workers may render the same preview at once; whichever lands last wins, both are identical
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private String contentHash(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long size = file.length();
+        long modified = file.lastModified();
+        FileHash cached = hashCache.get(path);
+        if (cached != null && cached.size() == size && cached.modified() == modified) {
+            return cached.hash();
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        String hash = HexFormat.of().formatHex(digest.digest());
+        hashCache.put(path, new FileHash(size, modified, hash));
+        return hash;
+    }
+
+    private record FileHash(long size, long modified, String hash) {
+    }
+
+    private Path resolveThumbnailDir() {
+        if (thumbnailDir != null && !thumbnailDir.isBlank()) {
+            return Path.of(thumbnailDir);
+        }
+        return Path.of(UploadPathResolver.resolveUploadDirectory()).resolve(".thumbnails");
+    }
+
+    private Path resolveVariantDir() {
+        if (thumbnailDir != null && !thumbnailDir.isBlank()) {
+            return Path.of(thumbnailDir).resolve("variants");
+        }
+        return Path.of(UploadPathResolver.resolveUploadDirectory()).resolve(".variants");
+    }
+
+    private static String extension(String format) {
+        return "jpeg".equals(format) ? "jpg" : format;
+    }
+
+    private boolean isJpeg(File file) {
+        String name = file.getName().toLowerCase();
+        return name.endsWith(".jpg") || name.endsWith(".jpeg");
+    }
+}
@@ -1,22 +1,76 @@
 package com.amanda.pasticeri.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.amanda.pasticeri.model.UploadedFile;
+import com.amanda.pasticeri.repository.FeedItemRepository;
+import com.amanda.pasticeri.repository.OrderRepository;
+import com.amanda.pasticeri.repository.ProductRepository;
 import com.amanda.pasticeri.util.UploadPathResolver;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class ImageUploadService {
     
     private static final Logger logger = LoggerFactory.getLogger(ImageUploadService.class);
 
+    private static final String URL_PREFIX = "/uploads/";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // Upload types that are not already compressed
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+        "image/svg+xml", "image/bmp", "image/x-ms-bmp", "image/tiff", "image/x-icon", "image/vnd.microsoft.icon");
+
     private final String uploadDir;
+    private final Object contentLock = new Object();
+
+    @Autowired
+    private UploadRegistry uploadRegistry;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private FeedItemRepository feedItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    // How long an upload may wait for the form that uses it before an unreferenced file is deleted
+    @Value("${app.uploads.unreferenced-grace-hours:24}")
+    private long unreferencedGraceHours;
+
+    // No request writes a temp file for this long; anything older was abandoned
+    @Value("${app.uploads.temp-file-max-age-hours:6}")
+    private long tempFileMaxAgeHours;
 
     public ImageUploadService() {
         String currentDir = System.getProperty("user.dir");
@@ -59,64 +113,19 @@ public class ImageUploadService {
 
             // Validate file type
             String contentType = file.getContentType();
-            if (contentType == null) {
-                throw new IllegalArgumentException("Content type is null");
-            }
-
-            if ("image".equals(fileType) && !contentType.startsWith("image/")) {
-                throw new IllegalArgumentException("Invalid file type. Only image files are allowed.");
-            }
-
-            if ("video".equals(fileType) && !contentType.startsWith("video/")) {
-                // Fallback: check file extension for videos
-                if (originalFilename != null) {
-                    String lowerFilename = originalFilename.toLowerCase();
-                    boolean isValidVideoExtension = lowerFilename.endsWith(".mp4") || 
-                                                 lowerFilename.endsWith(".avi") || 
-                                                 lowerFilename.endsWith(".mov") || 
-                                                 lowerFilename.endsWith(".wmv") || 
-                                                 lowerFilename.endsWith(".flv") || 
-                                                 lowerFilename.endsWith(".webm") || 
-                                                 lowerFilename.endsWith(".mkv");
-                    if (!isValidVideoExtension) {
-                        throw new IllegalArgumentException("Invalid file type. Only video files are allowed.");
-                    }
-                } else {
-                    throw new IllegalArgumentException("Invalid file type. Only video files are allowed.");
-                }
-            }
+            validateType(originalFilename, contentType, fileType);
 
             // Validate file size (50MB limit for videos, 10MB for images)
-            long maxSize = "video".equals(fileType) ? 50 * 1024 * 1024 : 10 * 1024 * 1024;
-            if (file.getSize() > maxSize) {
-                String maxSizeMB = "video".equals(fileType) ? "50MB" : "10MB";
-                throw new IllegalArgumentException("File size too large. Maximum size is " + maxSizeMB + ".");
+            if (file.getSize() > maxSize(fileType)) {
+                throw tooLarge(fileType);
             }
 
-            // Sanitize filename
-            String sanitizedFilename = originalFilename.replaceAll("[^a-zA-Z0-9.-]", "_");
-            String filename = System.currentTimeMillis() + "_" + sanitizedFilename;
-            
-            Path uploadPath = Paths.get(uploadDir);
-            Path filepath = uploadPath.resolve(filename);
-            
-            logger.info("Saving {} file to: {}", fileType, filepath.toAbsolutePath());
-            
-            // Create directories if they don't exist
-            Files.createDirectories(uploadPath);
-            
-            // Save the file
-            file.transferTo(filepath.toFile());
-            
-            // Verify file was saved
-            if (!Files.exists(filepath)) {
-                throw new RuntimeException("File was not saved successfully");
-            }
-            
-            logger.info("{} file saved successfully: {}", fileType, filename);
-            
-            // Return the URL path (relative to the server root)
-            return "/uploads/" + filename;
+            try (InputStream in = file.getInputStream()) {
+                String url = store(in, maxSize(fileType), originalFilename, contentType, fileType, -1);
+
+                // Return the URL path (relative to the server root)
+                return url;
+            }
         } catch (IOException e) {
             logger.error("Failed to upload {} file: {}", fileType, e.getMessage(), e);
             throw new RuntimeException("Failed to upload " + fileType + " file: " + e.getMessage(), e);
@@ -125,4 +134,318 @@ public class ImageUploadService {
             throw new RuntimeException("Failed to upload " + fileType + " file: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Stores a raw request body (no multipart spooling) straight onto the upload volume. The size limit is
+     * enforced while reading, so an oversized or lying client is cut off at the limit instead of filling the
+     * disk, and a body shorter than its declared length is rejected rather than stored truncated.
+     */
+    public String saveStream(InputStream body, long declaredLength, String originalFilename,
+                             String contentType, String fileType) throws IOException {
+        validate(originalFilename, contentType, fileType, declaredLength);
+        return store(body, maxSize(fileType), originalFilename, contentType, fileType, declaredLength);
+    }
+
+    /** Checks an upload announced up front (streamed or chunked); {@code size} may be -1 when unknown. */
+    void validate(String originalFilename, String contentType, String fileType, long size) {
+        if (!"image".equals(fileType) && !"video".equals(fileType)) {
+            throw new IllegalArgumentException("Invalid type. Must be 'image' or 'video'.");
+        }
+        if (originalFilename == null || originalFilename.trim().isEmpty()) {
+            throw new IllegalArgumentException("Original filename is null or empty");
+        }
+        validateType(originalFilename, contentType, fileType);
+        if (size > maxSize(fileType)) {
+            throw tooLarge(fileType);
+        }
+    }
+
+    /** Files a completely written temp file from {@link #tempDirectory()} into the content-addressed store. */
+    String storeCompleted(Path temp, String checksum, long size, String originalFilename,
+                          String contentType, String fileType) throws IOException {
+        String url = commit(temp, checksum, size, extension(originalFilename), contentType, fileType).getUrl();
+        logger.info("{} file saved successfully: {}", fileType, url);
+        return url;
+    }
+
+    /**
+     * Scratch space on the upload volume, so finished files reach the store by rename rather than copy. It is
+     * a dot-directory, which the /uploads/** handler never serves; it also holds the multipart spool.
+     */
+    Path tempDirectory() throws IOException {
+        Path tempDir = Paths.get(uploadDir).resolve(".tmp");
+        Files.createDirectories(tempDir);
+        return tempDir;
+    }
+
+    private void validateType(String originalFilename, String contentType, String fileType) {
+        if (contentType == null) {
+            throw new IllegalArgumentException("Content type is null");
+        }
+
+        if ("image".equals(fileType) && !contentType.startsWith("image/")) {
+            throw new IllegalArgumentException("Invalid file type. Only image files are allowed.");
+        }
+
+        if ("video".equals(fileType) && !contentType.startsWith("video/")) {
+            // Fallback: check file extension for videos
+            if (originalFilename != null) {
+                String lowerFilename = originalFilename.toLowerCase();
+                boolean isValidVideoExtension = lowerFilename.endsWith(".mp4") || 
+                                             lowerFilename.endsWith(".avi") || 
+                                             lowerFilename.endsWith(".mov") || 
+                                             lowerFilename.endsWith(".wmv") || 
+                                             lowerFilename.endsWith(".flv") || 
+                                             lowerFilename.endsWith(".webm") || 
+                                             lowerFilename.endsWith(".mkv");
+                if (!isValidVideoExtension) {
+                    throw new IllegalArgumentException("Invalid file type. Only video files are allowed.");
+                }
+            } else {
+                throw new IllegalArgumentException("Invalid file type. Only video files are allowed.");
+            }
+        }
+    }
+
+    private long maxSize(String fileType) {
+        return "video".equals(fileType) ? 50 * 1024 * 1024 : 10 * 1024 * 1024;
+    }
+
+    private IllegalArgumentException tooLarge(String fileType) {
+        String maxSizeMB = "video".equals(fileType) ? "50MB" : "10MB";
+        return new IllegalArgumentException("File size too large. Maximum size is " + maxSizeMB + ".");
+    }
+
+    /**
+     * Records that one product, feed item or order now shows {@code url}. Call it once when the owner is
+     * saved with the URL, and {@link #release} once when the owner drops it or is deleted.
+     */
+    public void attach(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return;
+        }
+        try {
+            synchronized (contentLock) {
+                uploadRegistry.addReference(url);
+            }
+        } catch (RuntimeException e) {
+            // The owner is already saved; the count is corrected on the next start
+            logger.warn("⚠️ Could not count a reference to upload {}: {}", url, e.getMessage());
+        }
+    }
+
+    /**
+     * Drops one owner's reference to an uploaded file. When it was the last one the file is deleted, unless it
+     * was uploaded within the grace period (a form may be about to use it), in which case the sweep removes it.
+     */
+    public void release(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return;
+        }
+        synchronized (contentLock) {
+            LocalDateTime cutoff = graceCutoff();
+            uploadRegistry.release(url)
+                .filter(entry -> uploadedAt(entry).isBefore(cutoff))
+                .ifPresent(this::delete);
+        }
+    }
+
+    // Temp and spool files left behind by a crash or a killed request. Chunked uploads live here too but
+    // expire on their own schedule in ChunkedUploadService.
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelay = 3600000, initialDelay = 3600000) // 1 hour
+    public void sweepTempFiles() {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(tempFileMaxAgeHours));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(tempDirectory())) {
+            for (Path file : files) {
+                if (file.getFileName().toString().startsWith("chunked-") || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                    logger.info("🧹 Deleted stale temp file {}", file.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("⚠️ Could not sweep upload temp files: {}", e.getMessage());
+        }
+    }
+
+    // Uploads that were never attached (e.g. an image uploaded from a form that was then cancelled)
+    @Scheduled(fixedDelay = 3600000) // 1 hour
+    public void sweepUnreferenced() {
+        synchronized (contentLock) {
+            try {
+                String store = contentRoot().toFile().getCanonicalPath();
+                for (UploadedFile entry : uploadRegistry.unreferencedSince(graceCutoff(), store)) {
+                    delete(entry);
+                }
+            } catch (IOException e) {
+                logger.warn("⚠️ Could not sweep unreferenced uploads: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Recounts every upload's owners from the products, feed items and orders on start, which also converts
+     * counts written before uploads stopped counting as references.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileReferences() {
+        Map<String, Integer> owners = new HashMap<>();
+        productRepository.findUploadedImageUrls().forEach(url -> owners.merge(url, 1, Integer::sum));
+        feedItemRepository.findUploadedUrls().forEach(url -> owners.merge(url, 1, Integer::sum));
+        for (String imageUrls : orderRepository.findUploadedImageUrls()) {
+            for (String url : imageUrls.split(",")) {
+                owners.merge(url.trim(), 1, Integer::sum);
+            }
+        }
+        synchronized (contentLock) {
+            int corrected = uploadRegistry.resetReferences(owners);
+            if (corrected > 0) {
+                logger.info("🔁 Corrected the reference count of {} uploads", corrected);
+            }
+        }
+    }
+
+    private void delete(UploadedFile entry) {
+        try {
+            Path stored = Path.of(entry.getStoragePath());
+            // Only content-addressed files are deleted; legacy uploads outside the store are left alone
+            if (!stored.startsWith(contentRoot().toFile().getCanonicalPath())) {
+                return;
+            }
+            uploadRegistry.remove(entry);
+            Files.deleteIfExists(stored);
+            Files.deleteIfExists(gzipSibling(stored));
+            logger.info("🗑️ Deleted unreferenced upload {}", entry.getUrl());
+        } catch (IOException e) {
+            logger.warn("⚠️ Could not delete unreferenced upload {}: {}", entry.getUrl(), e.getMessage());
+        }
+    }
+
+    private LocalDateTime graceCutoff() {
+        return LocalDateTime.now().minusHours(unreferencedGraceHours);
+    }
+
+    private static LocalDateTime uploadedAt(UploadedFile entry) {
+        return entry.getUploadedAt() != null ? entry.getUploadedAt() : entry.getCreatedAt();
+    }
+
+    /**
+     * Streams {@code in} to a temp file on the upload volume while hashing it, then files it under its
+     * SHA-256 ({@code cas/ab/cd/<hash>.<ext>}). Content that is already stored is not written again:
+     * the existing URL is returned and the temp file is discarded, so duplicates cost no extra space and no rename.
+     * {@code expectedBytes} is the declared length to verify, or -1 when unknown.
+     */
+    private String store(InputStream in, long maxBytes, String originalFilename, String contentType,
+                         String fileType, long expectedBytes) throws IOException {
+        Path temp = Files.createTempFile(tempDirectory(), "upload-", ".part");
+        try {
+            MessageDigest digest = UploadRegistry.newSha256();
+            long size = 0;
+            byte[] chunk = new byte[COPY_BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw tooLarge(fileType);
+                    }
+                    digest.update(chunk, 0, read);
+                    buffer.clear().limit(read);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            }
+            if (expectedBytes >= 0 && size != expectedBytes) {
+                throw new IllegalArgumentException("Upload incomplete: received " + size + " of " + expectedBytes + " bytes");
+            }
+            if (size == 0) {
+                throw new IllegalArgumentException("File is null or empty");
+            }
+
+            String checksum = HexFormat.of().formatHex(digest.digest());
+            return storeCompleted(temp, checksum, size, originalFilename, contentType, fileType);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Lookup, rename and insert happen under one lock so two concurrent uploads of the same bytes
+    // end up as one file and one row rather than racing on the same path
+    private UploadedFile commit(Path temp, String checksum, long size, String extension,
+                                String contentType, String fileType) throws IOException {
+        synchronized (contentLock) {
+            Optional<UploadedFile> existing = uploadRegistry.findByChecksum(checksum);
+            if (existing.isPresent() && Files.isRegularFile(Path.of(existing.get().getStoragePath()))) {
+                UploadedFile entry = uploadRegistry.touch(existing.get());
+                logger.info("♻️ Duplicate {} upload reuses {} ({} refs)", fileType, entry.getUrl(), entry.getRefCount());
+                return entry;
+            }
+
+            Path target = contentRoot()
+                .resolve(checksum.substring(0, 2))
+                .resolve(checksum.substring(2, 4))
+                .resolve(checksum + extension);
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            precompress(target, contentType);
+
+            String url = URL_PREFIX + Paths.get(uploadDir).relativize(target).toString().replace('\\', '/');
+            logger.info("Saving {} file to: {}", fileType, target.toAbsolutePath());
+            return uploadRegistry.register(url, target, size, contentType, checksum, fileType);
+        }
+    }
+
+    /**
+     * Writes a gzip sibling ({@code <file>.gz}) for formats that compress well, which the /uploads/cas
+     * handler serves to clients accepting gzip. JPEG, PNG, WebP and video are already compressed and are
+     * skipped; a variant that saves less than 10% is not kept.
+     */
+    private void precompress(Path file, String contentType) {
+        if (contentType == null || !COMPRESSIBLE_TYPES.contains(contentType.toLowerCase())) {
+            return;
+        }
+        try {
+            Path temp = Files.createTempFile(tempDirectory(), "gzip-", ".part");
+            try {
+                try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), COPY_BUFFER_SIZE) {
+                    { def.setLevel(Deflater.BEST_COMPRESSION); }
+                }) {
+                    Files.copy(file, out);
+                }
+                long original = Files.size(file);
+                long compressed = Files.size(temp);
+                if (compressed < original * 0.9) {
+                    Files.move(temp, gzipSibling(file), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    logger.info("🗜️ Precompressed {} ({} KB -> {} KB)", file.getFileName(), original / 1024, compressed / 1024);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            logger.warn("⚠️ Could not precompress {}: {}", file.getFileName(), e.getMessage());
+        }
+    }
+
+    private static Path gzipSibling(Path file) {
+        return file.resolveSibling(file.getFileName() + ".gz");
+    }
+
+    private Path contentRoot() {
+        return Paths.get(uploadDir).resolve("cas");
+    }
+
+    // Keeps the original extension so /uploads/** still serves the right Content-Type
+    private static String extension(String filename) {
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0) {
+            return "";
+        }
+        String extension = filename.substring(dot + 1).toLowerCase();
+        return extension.matches("[a-z0-9]{1,5}") ? "." + extension : "";
+    }
 }
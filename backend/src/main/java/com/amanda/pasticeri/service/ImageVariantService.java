@@ -0,0 +1,104 @@
+package com.amanda.pasticeri.service;
+
+import com.amanda.pasticeri.model.UploadedFile;
+import com.amanda.pasticeri.util.ImageVariants;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the fixed-width variants listed by {@link ImageVariants}. A variant is made on first request and
+ * cached on disk by {@link ImageDerivativeService}; product and feed uploads are also pre-rendered in the
+ * background right after they are stored, so the first visitor rarely pays for the resize.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    @Autowired
+    private UploadRegistry uploadRegistry;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    // checksum@width.format -> render in progress, so concurrent requests share one resize
+    private final Map<String, CompletableFuture<File>> inFlight = new ConcurrentHashMap<>();
+
+    // One thread: resizing is CPU-heavy and must not compete with request handling
+    private final ExecutorService renderer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "image-variants");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The variant of {@code uploadUrl} at {@code width}, or the original when it is already narrower.
+     * Empty for widths that are not offered, non-image URLs and unknown uploads. When the resize fails the
+     * original is returned marked as not rendered, so it is never cached as the variant.
+     */
+    public Optional<Variant> variant(String uploadUrl, int width, String format) {
+        if (!ImageVariants.WIDTHS.contains(width) || !ImageVariants.isVariantSource(uploadUrl)
+                || !ImageDerivativeService.canWrite(format)) {
+            return Optional.empty();
+        }
+        Optional<File> original = uploadRegistry.resolve(uploadUrl);
+        Optional<UploadedFile> entry = uploadRegistry.find(uploadUrl);
+        if (original.isEmpty() || entry.isEmpty() || entry.get().getChecksum() == null) {
+            return Optional.empty();
+        }
+
+        String checksum = entry.get().getChecksum();
+        String key = checksum + "@" + width + "." + format;
+        CompletableFuture<File> rendering = new CompletableFuture<>();
+        CompletableFuture<File> running = inFlight.putIfAbsent(key, rendering);
+        try {
+            if (running != null) {
+                // Already being rendered (e.g. by the background pre-render); wait for that result
+                return Optional.of(new Variant(running.join(), checksum, true));
+            }
+            File file = imageDerivativeService.widthVariant(original.get(), checksum, width, format);
+            rendering.complete(file);
+            return Optional.of(new Variant(file, checksum, true));
+        } catch (Exception e) {
+            rendering.completeExceptionally(e);
+            logger.warn("⚠️ Could not create {}px variant of {}: {}", width, uploadUrl, e.getMessage());
+            return Optional.of(new Variant(original.get(), checksum, false));
+        } finally {
+            if (running == null) {
+                inFlight.remove(key, rendering);
+            }
+        }
+    }
+
+    /** Renders every width of a freshly stored product or feed image in the background. */
+    public void prerender(String uploadUrl) {
+        if (!ImageVariants.isVariantSource(uploadUrl)) {
+            return;
+        }
+        renderer.execute(() -> {
+            for (int width : ImageVariants.WIDTHS) {
+                variant(uploadUrl, width, "jpeg");
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renderer.shutdownNow();
+    }
+
+    /** {@code rendered} is false for the original handed back after a failed resize. */
+    public record Variant(File file, String checksum, boolean rendered) {
+    }
+}
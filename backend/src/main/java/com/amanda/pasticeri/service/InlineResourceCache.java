@@ -0,0 +1,76 @@
+package com.amanda.pasticeri.service;
+
+import jakarta.activation.DataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.util.ByteArrayDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Images embedded in outgoing mail by content id, read from the classpath once at startup so they work
+ * from the packaged jar and cost no disk I/O per email. The bytes, their Base64 form (for Resend) and a
+ * shareable {@link DataSource} (for JavaMail) are built once and never change afterwards.
+ */
+@Component
+public class InlineResourceCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(InlineResourceCache.class);
+
+    // content id -> classpath location
+    private static final Map<String, String> LOCATIONS = Map.of(
+        "logoAmanda", "static/logoAmanda.jpg"
+    );
+
+    private Map<String, InlineResource> resources = Map.of();
+
+    @PostConstruct
+    void load() {
+        Map<String, InlineResource> loaded = new LinkedHashMap<>();
+        LOCATIONS.forEach((contentId, location) -> {
+            ClassPathResource resource = new ClassPathResource(location);
+            try (InputStream in = resource.getInputStream()) {
+                byte[] bytes = in.readAllBytes();
+                String fileName = resource.getFilename();
+                String contentType = URLConnection.guessContentTypeFromName(fileName);
+                if (contentType == null) {
+                    contentType = "application/octet-stream";
+                }
+
+                ByteArrayDataSource dataSource = new ByteArrayDataSource(bytes, contentType);
+                dataSource.setName(fileName);
+                loaded.put(contentId, new InlineResource(contentId, fileName, contentType, dataSource,
+                    Base64.getEncoder().encodeToString(bytes), bytes.length));
+                logger.info("🖼️ Inline mail resource '{}' loaded from classpath ({} KB)", contentId, bytes.length / 1024);
+            } catch (IOException e) {
+                logger.warn("⚠️ Inline mail resource '{}' not found on classpath at {}", contentId, location);
+            }
+        });
+        resources = Map.copyOf(loaded);
+    }
+
+    /** The cached resources whose {@code cid:} reference appears in {@code html}. */
+    public List<InlineResource> referencedBy(String html) {
+        List<InlineResource> referenced = new ArrayList<>();
+        for (InlineResource resource : resources.values()) {
+            if (html != null && html.contains("cid:" + resource.contentId())) {
+                referenced.add(resource);
+            }
+        }
+        return referenced;
+    }
+
+    public record InlineResource(String contentId, String fileName, String contentType,
+                                 DataSource dataSource, String base64, int size) {
+    }
+}
@@ -3,25 +3,47 @@ package com.amanda.pasticeri.service;
 import com.amanda.pasticeri.dto.MenuOrderDto;
 import com.amanda.pasticeri.dto.OrderRequestDto;
 import com.amanda.pasticeri.dto.CartOrderDto;
+import com.amanda.pasticeri.dto.OrderHistoryPage;
+import com.amanda.pasticeri.dto.OrderSummaryDto;
+import com.amanda.pasticeri.dto.ProductSalesDto;
 import com.amanda.pasticeri.model.Order;
+import com.amanda.pasticeri.model.OrderItem;
 import com.amanda.pasticeri.model.Product;
+import com.amanda.pasticeri.repository.OrderItemRepository;
 import com.amanda.pasticeri.repository.OrderRepository;
 import com.amanda.pasticeri.repository.ProductRepository;
+import com.amanda.pasticeri.util.KeysetPaging;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+    private static final int AUTO_COMPLETE_BATCH_SIZE = 200;
+    private static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_HISTORY_LIMIT = 50;
+    private static final Set<String> SORTABLE_FIELDS = Set.of(
+        "id", "orderDate", "deliveryDateTime", "status", "orderType", "customerName", "customerEmail", "totalPrice"
+    );
 
     @Autowired
     private OrderRepository orderRepository;
@@ -32,19 +54,31 @@ public class OrderService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
     @Autowired
     private ImageUploadService imageUploadService;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     public Order save(Order order) {
         logger.info("💾 Saving order: {}", order.getProductName());
-        Order savedOrder = orderRepository.save(order);
-
-        logger.info("✅ ORDER SAVED with ID: {}", savedOrder.getId());
-        logger.info("📧 Triggering asyncEmailService.sendOrderNotifications for order ID: {}", savedOrder.getId());
-
-        asyncEmailService.sendOrderNotifications(savedOrder);
-
-        logger.info("✅ Email notification task queued for order ID: {}", savedOrder.getId());
+        // ✅ The order and its outbox notifications commit together
+        Order savedOrder = transactionTemplate.execute(status -> {
+            Order saved = orderRepository.save(order);
+            logger.info("✅ ORDER SAVED with ID: {}", saved.getId());
+            asyncEmailService.sendOrderNotifications(saved);
+            return saved;
+        });
+
+        logger.info("✅ Email notification queued for order ID: {}", savedOrder.getId());
+        if (savedOrder.getImageUrls() != null && !savedOrder.getImageUrls().isEmpty()) {
+            for (String imageUrl : savedOrder.getImageUrls().split(",")) {
+                imageUploadService.attach(imageUrl.trim());
+            }
+        }
         return savedOrder;
     }
 
@@ -52,8 +86,48 @@ public class OrderService {
         return orderRepository.findAll();
     }
 
+    public Page<OrderSummaryDto> getOrderSummaries(String status, String orderType, LocalDate fromDate,
+                                                   LocalDate toDate, String customerEmail, Pageable pageable) {
+        for (Sort.Order sortOrder : pageable.getSort()) {
+            if (!SORTABLE_FIELDS.contains(sortOrder.getProperty())) {
+                throw new IllegalArgumentException("Cannot sort orders by: " + sortOrder.getProperty());
+            }
+        }
+
+        Sort sort = pageable.getSort().isSorted()
+            ? pageable.getSort().and(Sort.by(Sort.Direction.DESC, "id"))
+            : Sort.by(Sort.Direction.DESC, "orderDate", "id");
+        Pageable bounded = PageRequest.of(pageable.getPageNumber(), Math.min(pageable.getPageSize(), MAX_PAGE_SIZE), sort);
+
+        return orderRepository.findSummaries(blankToNull(status), blankToNull(orderType), fromDate, toDate,
+            blankToNull(customerEmail), bounded);
+    }
+
     public List<Order> getOrdersByEmail(String email) {
-        return orderRepository.findByCustomerEmail(email);
+        return orderRepository.findByCustomerEmailOrderByOrderDateDescIdDesc(email);
+    }
+
+    // Keyset-paged customer history ordered by (orderDate, id) descending; the cursor is opaque to clients
+    public OrderHistoryPage getOrderHistory(String email, String cursor, int limit) {
+        int size = KeysetPaging.pageSize(limit, MAX_HISTORY_LIMIT);
+        // Fetch one extra row to know whether another slice exists, without a COUNT query
+        Pageable window = PageRequest.of(0, size + 1);
+
+        List<Order> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = orderRepository.findByCustomerEmailOrderByOrderDateDescIdDesc(email, window);
+        } else {
+            KeysetPaging.Cursor<LocalDate> position = KeysetPaging.Cursor.decode(cursor, LocalDate::parse);
+            rows = orderRepository.findHistoryAfter(email, position.position(), position.id(), window);
+        }
+
+        if (rows.size() <= size) {
+            return new OrderHistoryPage(rows, null);
+        }
+
+        List<Order> items = rows.subList(0, size);
+        Order last = items.get(size - 1);
+        return new OrderHistoryPage(List.copyOf(items), new KeysetPaging.Cursor<>(last.getOrderDate(), last.getId()).encode());
     }
 
     public void placeCustomOrder(OrderRequestDto dto) {
@@ -161,26 +235,47 @@ public class OrderService {
             }
         }
 
-        save(order);
+        saveWithLines(order, List.of(toOrderLine(product, dto.getQuantity())));
     }
 
     public void placeCartOrder(CartOrderDto cartOrderDto, String authenticatedEmail) {
         logger.info("📝 placeCartOrder called for email: {}", authenticatedEmail);
-        // Calculate total and build product names
+
+        // Aggregate duplicate cart lines so each product is resolved and priced once
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartOrderDto.CartItem item : cartOrderDto.getItems()) {
+            if (item.getProductId() == null) {
+                throw new RuntimeException("Product not found: null");
+            }
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+
+        // ✅ One query for the whole cart instead of one per item
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(quantities.keySet())) {
+            products.put(product.getId(), product);
+        }
+
+        // Calculate total, build product names and snapshot each line in a single pass
         double total = 0;
         int totalQuantity = 0;
         StringBuilder productNames = new StringBuilder();
-        
-        for (CartOrderDto.CartItem item : cartOrderDto.getItems()) {
-            Product product = productRepository.findById(item.getProductId())
-                .orElseThrow(() -> new RuntimeException("Product not found: " + item.getProductId()));
-            
-            double itemTotal = product.getPrice() * item.getQuantity();
-            total += itemTotal;
-            totalQuantity += item.getQuantity();
-            
+        List<OrderItem> lines = new ArrayList<>(quantities.size());
+
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                throw new RuntimeException("Product not found: " + entry.getKey());
+            }
+
+            OrderItem line = toOrderLine(product, entry.getValue());
+            total += line.getLineTotal();
+            totalQuantity += line.getQuantity();
+
             if (productNames.length() > 0) productNames.append(", ");
             productNames.append(product.getName());
+
+            lines.add(line);
         }
         
         // Save the whole cart as a single Order entity
@@ -205,46 +300,74 @@ public class OrderService {
             }
         }
         
-        logger.info("💾 Saving cart order to database");
-        orderRepository.save(order);
+        logger.info("💾 Saving cart order with {} line(s) to database", lines.size());
+        saveWithLines(order, lines);
+        logger.info("✅ Email notification queued for cart order ID: {}", order.getId());
+    }
+
+    // Persist an order, its line snapshots and its outbox notifications in one transaction
+    private void saveWithLines(Order order, List<OrderItem> lines) {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.save(order);
+            for (OrderItem line : lines) {
+                line.setOrder(order);
+            }
+            orderItemRepository.saveAll(lines);
+            asyncEmailService.sendOrderNotifications(order);
+        });
+    }
 
-        logger.info("📧 Triggering asyncEmailService.sendOrderNotifications for cart order ID: {}", order.getId());
-        asyncEmailService.sendOrderNotifications(order);
-        logger.info("✅ Email notification task queued for cart order ID: {}", order.getId());
+    static OrderItem toOrderLine(Product product, int quantity) {
+        OrderItem line = new OrderItem();
+        line.setProductId(product.getId());
+        line.setProductName(product.getName());
+        line.setQuantity(quantity);
+        line.setUnitPrice(product.getPrice());
+        line.setPriceType(product.getPriceType());
+        line.setLineTotal(product.getPrice() * quantity);
+        return line;
+    }
+
+    public List<ProductSalesDto> getSalesByProduct(LocalDate fromDate, LocalDate toDate) {
+        return orderItemRepository.sumSalesByProduct(fromDate, toDate);
     }
 
     public void setOrderPrice(Long id, double price) {
         logger.info("💰 setOrderPrice called for order ID: {} with price: {}", id, price);
-        Order order = orderRepository.findById(id).orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setTotalPrice(price);
-        order.setStatus("pending");
-        orderRepository.save(order);
-
-        logger.info("📧 Triggering asyncEmailService.sendPriceSetNotification for order ID: {}", id);
-        asyncEmailService.sendPriceSetNotification(order);
-        logger.info("✅ Price set email notification task queued for order ID: {}", id);
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = orderRepository.findById(id).orElseThrow(() -> new RuntimeException("Order not found"));
+            // Setting the price an order already has (e.g. a resubmitted form) is not a new notification
+            boolean unchanged = Double.valueOf(price).equals(order.getTotalPrice()) && "pending".equals(order.getStatus());
+            order.setTotalPrice(price);
+            order.setStatus("pending");
+            orderRepository.save(order);
+            if (!unchanged) {
+                asyncEmailService.sendPriceSetNotification(order);
+            }
+        });
+        logger.info("✅ Price set email notification queued for order ID: {}", id);
     }
 
     public void markOrderComplete(Long id) {
         logger.info("✅ markOrderComplete called for order ID: {}", id);
-        Order order = orderRepository.findById(id).orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus("completed");
-        orderRepository.save(order);
-        
-        logger.info("📧 Triggering asyncEmailService.sendCompletionNotifications for order ID: {}", id);
-        asyncEmailService.sendCompletionNotifications(order);
-        logger.info("✅ Completion email notification task queued for order ID: {}", id);
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = orderRepository.findById(id).orElseThrow(() -> new RuntimeException("Order not found"));
+            order.setStatus("completed");
+            orderRepository.save(order);
+            asyncEmailService.sendCompletionNotifications(order);
+        });
+        logger.info("✅ Completion email notification queued for order ID: {}", id);
     }
 
     public void cancelOrder(Long id) {
         logger.info("❌ cancelOrder called for order ID: {}", id);
-        Order order = orderRepository.findById(id).orElseThrow(() -> new RuntimeException("Order not found"));
-        order.setStatus("canceled");
-        orderRepository.save(order);
-        
-        logger.info("📧 Triggering asyncEmailService.sendCancellationNotifications for order ID: {}", id);
-        asyncEmailService.sendCancellationNotifications(order);
-        logger.info("✅ Cancellation email notification task queued for order ID: {}", id);
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = orderRepository.findById(id).orElseThrow(() -> new RuntimeException("Order not found"));
+            order.setStatus("canceled");
+            orderRepository.save(order);
+            asyncEmailService.sendCancellationNotifications(order);
+        });
+        logger.info("✅ Cancellation email notification queued for order ID: {}", id);
     }
 
     public void cancelMyOrder(Long id, String userEmail) {
@@ -311,34 +434,59 @@ public class OrderService {
         
         logger.info("💾 Saving updated order...");
         try {
-            orderRepository.save(order);
+            transactionTemplate.executeWithoutResult(status -> {
+                orderRepository.save(order);
+                asyncEmailService.sendCancellationNotifications(order);
+            });
             logger.info("✅ Order saved successfully");
         } catch (Exception e) {
             logger.error("❌ Database save error: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to save order: " + e.getMessage());
         }
         
-        logger.info("📧 Triggering asyncEmailService.sendCancellationNotifications for order ID: {}", id);
-        asyncEmailService.sendCancellationNotifications(order);
-        logger.info("✅ Cancellation email notification task queued for order ID: {}", id);
+        logger.info("✅ Cancellation email notification queued for order ID: {}", id);
     }
     
     // ✅ Auto-complete menu orders when delivery time passes
     public void autoCompleteMenuOrders() {
         logger.debug("⏰ autoCompleteMenuOrders scheduled task running");
-        List<Order> pendingMenuOrders = orderRepository.findAll().stream()
-            .filter(order -> "pending".equals(order.getStatus()) && 
-                           order.getDeliveryDateTime() != null &&
-                           order.getDeliveryDateTime().isBefore(LocalDateTime.now()))
-            .toList();
-        
-        logger.info("📋 Found {} pending menu orders to auto-complete", pendingMenuOrders.size());
-        
-        for (Order order : pendingMenuOrders) {
-            logger.info("✅ Auto-completing menu order ID: {}", order.getId());
-            order.setStatus("completed");
-            orderRepository.save(order);
-            asyncEmailService.sendCompletionNotifications(order);
-        }
+        LocalDateTime cutoff = LocalDateTime.now();
+
+        // Select due orders in pages (locked) and flip them with one UPDATE per page, all inside a single transaction.
+        // Completed rows drop out of the filter, so every iteration reads the first page again.
+        List<Order> completedOrders = transactionTemplate.execute(status -> {
+            List<Order> completed = new ArrayList<>();
+            Pageable firstPage = PageRequest.of(0, AUTO_COMPLETE_BATCH_SIZE, Sort.by("deliveryDateTime", "id"));
+            List<Order> batch;
+            do {
+                batch = orderRepository.findByStatusAndDeliveryDateTimeBefore("pending", cutoff, firstPage);
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                // The batch is row-locked, so every row is still pending; anything else means the lock did not
+                // hold and nobody may be notified, so roll the whole run back and let the next run retry
+                List<Long> ids = batch.stream().map(Order::getId).toList();
+                int updated = orderRepository.updateStatusForIds(ids, "pending", "completed");
+                if (updated != ids.size()) {
+                    throw new IllegalStateException("Completed " + updated + " of " + ids.size() + " locked due orders");
+                }
+                logger.debug("✅ Bulk-completed {} due menu orders", updated);
+
+                for (Order order : batch) {
+                    order.setStatus("completed");
+                    asyncEmailService.sendCompletionNotifications(order);
+                    completed.add(order);
+                }
+            } while (batch.size() == AUTO_COMPLETE_BATCH_SIZE);
+            return completed;
+        });
+
+        // Completion emails were written to the outbox in the same transaction and go out after commit
+        logger.info("📋 Auto-completed {} pending menu orders", completedOrders.size());
+    }
+
+    private String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
     }
 }
@@ -0,0 +1,111 @@
+package com.amanda.pasticeri.service;
+
+import com.amanda.pasticeri.model.Product;
+import com.amanda.pasticeri.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The public catalog as ready-to-send JSON. The first read after a change loads every product once and
+ * serializes the list and each product up front; later reads of {@code GET /api/products} and
+ * {@code GET /api/products/{id}} are a field read, and category pages are answered from a category index
+ * built in the same pass. {@link ProductService} invalidates it on every write.
+ * <p>
+ * ETags are the SHA-256 of the payload, so they stay valid across restarts and only change when the
+ * catalog does.
+ */
+@Service
+public class ProductCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogCache.class);
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Catalog catalog;
+
+    public Payload all() {
+        return current().all();
+    }
+
+    public Optional<Payload> byId(Long id) {
+        return Optional.ofNullable(current().byId().get(id));
+    }
+
+    /** The products in {@code category} (exact match, as stored), in catalog order; empty for unknown categories. */
+    public List<Product> inCategory(String category) {
+        return current().byCategory().getOrDefault(categoryKey(category), List.of());
+    }
+
+    /** Drops the cached catalog; the next read rebuilds it from the database. */
+    public void invalidate() {
+        version.incrementAndGet();
+        catalog = null;
+    }
+
+    private Catalog current() {
+        Catalog cached = catalog;
+        if (cached != null) {
+            return cached;
+        }
+
+        // A write that lands while we read the database bumps the version; the snapshot is then
+        // still served to this caller but not installed, so stale data is never cached
+        long readVersion = version.get();
+        Catalog loaded = load();
+        synchronized (this) {
+            if (version.get() == readVersion && catalog == null) {
+                catalog = loaded;
+                logger.info("📦 Product catalog cached: {} products, {} KB", loaded.byId().size(), loaded.all().json().length / 1024);
+            }
+        }
+        return loaded;
+    }
+
+    private Catalog load() {
+        try {
+            List<Product> products = repository.findAll();
+            Map<Long, Payload> byId = new HashMap<>();
+            Map<String, List<Product>> byCategory = new HashMap<>();
+            for (Product product : products) {
+                byId.put(product.getId(), payload(objectMapper.writeValueAsBytes(product)));
+                byCategory.computeIfAbsent(categoryKey(product.getCategory()), key -> new ArrayList<>()).add(product);
+            }
+            byCategory.replaceAll((key, list) -> List.copyOf(list));
+            return new Catalog(payload(objectMapper.writeValueAsBytes(products)), Map.copyOf(byId), Map.copyOf(byCategory));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize product catalog", e);
+        }
+    }
+
+    private static String categoryKey(String category) {
+        return category == null ? "" : category;
+    }
+
+    private static Payload payload(byte[] json) {
+        byte[] hash = UploadRegistry.newSha256().digest(json);
+        return new Payload(json, HexFormat.of().formatHex(hash, 0, 16));
+    }
+
+    public record Payload(byte[] json, String etag) {
+    }
+
+    private record Catalog(Payload all, Map<Long, Payload> byId, Map<String, List<Product>> byCategory) {
+    }
+}
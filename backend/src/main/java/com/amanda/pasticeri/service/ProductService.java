@@ -1,26 +1,47 @@
 package com.amanda.pasticeri.service;
 
+import com.amanda.pasticeri.dto.ProductPage;
 import com.amanda.pasticeri.model.Product;
 import com.amanda.pasticeri.repository.ProductRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 public class ProductService {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
+    private static final int MAX_PAGE_SIZE = 100;
+    // Not a backslash: MySQL reads the '\' of a generated ESCAPE clause as an escaped quote
+    private static final char LIKE_ESCAPE = '!';
 
     @Autowired
     private ProductRepository repository;
 
+    @Autowired
+    private ImageUploadService imageUploadService;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
     public List<Product> getAll() {
         return repository.findAll();
     }
@@ -30,6 +51,9 @@ public class ProductService {
         try {
             logger.info("💾 Saving product: {}", product.getName());
             Product savedProduct = repository.save(product);
+            catalogCache.invalidate();
+            searchIndexService.indexProduct(savedProduct);
+            imageUploadService.attach(savedProduct.getImageUrl());
             logger.info("✅ Product saved successfully: {}", savedProduct.getId());
             return savedProduct;
         } catch (DataAccessException e) {
@@ -49,6 +73,7 @@ public class ProductService {
             }
 
             Product existing = optional.get();
+            String previousImageUrl = existing.getImageUrl();
             existing.setName(updated.getName());
             existing.setCategory(updated.getCategory());
             existing.setDescription(updated.getDescription());
@@ -57,6 +82,13 @@ public class ProductService {
             existing.setImageUrl(updated.getImageUrl());
             
             Product savedProduct = repository.save(existing);
+            catalogCache.invalidate();
+            searchIndexService.indexProduct(savedProduct);
+            // ✅ The product holds one reference to whichever image it shows
+            if (!Objects.equals(previousImageUrl, savedProduct.getImageUrl())) {
+                imageUploadService.attach(savedProduct.getImageUrl());
+                imageUploadService.release(previousImageUrl);
+            }
             logger.info("✅ Product updated successfully: {}", savedProduct.getId());
             return savedProduct;
         } catch (DataAccessException e) {
@@ -65,11 +97,108 @@ public class ProductService {
         }
     }
 
+    /**
+     * One page of the catalog filtered by any of category, price range, price type and name. A plain
+     * category page is answered from the in-memory category index; any other filter becomes a database
+     * query with only the given predicates, ordered and paged by the database.
+     */
+    public ProductPage query(String category, Double minPrice, Double maxPrice, String priceType,
+                             String name, String sort, int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative");
+        }
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // The database query takes an int offset; no catalog comes close, so such a page is a client error
+        if ((long) page * pageSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Page is too large");
+        }
+        Sort order = sortOrder(sort);
+
+        if (!isBlank(category) && minPrice == null && maxPrice == null && isBlank(priceType) && isBlank(name)) {
+            List<Product> inCategory = new ArrayList<>(catalogCache.inCategory(category));
+            inCategory.sort(comparator(order));
+            int from = (int) Math.min((long) page * pageSize, inCategory.size());
+            int to = Math.min(from + pageSize, inCategory.size());
+            return new ProductPage(List.copyOf(inCategory.subList(from, to)), page, pageSize, inCategory.size());
+        }
+
+        Specification<Product> filter = Specification.where(null);
+        if (!isBlank(category)) {
+            filter = filter.and((root, query, cb) -> cb.equal(root.get("category"), category));
+        }
+        if (minPrice != null) {
+            filter = filter.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), minPrice));
+        }
+        if (maxPrice != null) {
+            filter = filter.and((root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice));
+        }
+        if (!isBlank(priceType)) {
+            filter = filter.and((root, query, cb) -> cb.equal(root.get("priceType"), priceType));
+        }
+        if (!isBlank(name)) {
+            String pattern = "%" + escapeLike(name.trim().toLowerCase(Locale.ROOT)) + "%";
+            filter = filter.and((root, query, cb) -> cb.like(cb.lower(root.get("name")), pattern, LIKE_ESCAPE));
+        }
+
+        Page<Product> result = repository.findAll(filter, PageRequest.of(page, pageSize, order));
+        return new ProductPage(result.getContent(), page, pageSize, result.getTotalElements());
+    }
+
+    // "name" (default), "price", "-price" or "newest"; id breaks ties so pages never overlap. Names compare
+    // case-insensitively (lower(name)) so the order does not depend on the database collation.
+    private Sort sortOrder(String sort) {
+        String key = isBlank(sort) ? "name" : sort.trim();
+        return switch (key) {
+            case "name" -> Sort.by(Sort.Order.asc("name").ignoreCase()).and(Sort.by("id"));
+            case "price" -> Sort.by("price").ascending().and(Sort.by("id"));
+            case "-price" -> Sort.by("price").descending().and(Sort.by("id"));
+            case "newest" -> Sort.by("id").descending();
+            default -> throw new IllegalArgumentException("Invalid sort. Use name, price, -price or newest.");
+        };
+    }
+
+    // The in-memory equivalent of sortOrder for the category index: ignoreCase as lower(), and nulls first
+    // as the database sorts them in ascending order
+    private Comparator<Product> comparator(Sort order) {
+        Comparator<Product> comparator = null;
+        for (Sort.Order property : order) {
+            Comparator<String> text = property.isIgnoreCase()
+                ? Comparator.comparing(value -> value.toLowerCase(Locale.ROOT))
+                : Comparator.naturalOrder();
+            Comparator<Product> next = switch (property.getProperty()) {
+                case "name" -> Comparator.comparing(Product::getName, Comparator.nullsFirst(text));
+                case "price" -> Comparator.comparingDouble(Product::getPrice);
+                default -> Comparator.comparing(Product::getId);
+            };
+            if (property.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    // A literal % or _ in the search text must not act as a wildcard
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
     public void delete(Long id) {
+        String imageUrl = repository.findById(id).map(Product::getImageUrl).orElse(null);
         repository.deleteById(id);
+        catalogCache.invalidate();
+        searchIndexService.removeProduct(id);
+        imageUploadService.release(imageUrl);
     }
 
     public Product getById(Long id) {
         return repository.findById(id).orElseThrow(() -> new RuntimeException("Product not found"));
     }
-}
\ No newline at end of file
+}
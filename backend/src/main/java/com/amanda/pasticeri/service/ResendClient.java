@@ -0,0 +1,57 @@
+package com.amanda.pasticeri.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Thin wrapper around the shared {@code resendHttpClient}. Every email goes through the same client, so a
+ * burst of notifications reuses one HTTP/2 connection to the provider instead of handshaking per message.
+ */
+@Component
+public class ResendClient {
+
+    private final HttpClient httpClient;
+    private final URI endpoint;
+    private final String apiKey;
+    private final Duration requestTimeout;
+
+    @Autowired
+    public ResendClient(
+            HttpClient resendHttpClient,
+            @Value("${app.mail.resend-url:https://api.resend.com/emails}") String endpoint,
+            @Value("${app.mail.resend-api-key:}") String apiKey,
+            @Value("${app.mail.resend.request-timeout-seconds:20}") long requestTimeoutSeconds
+    ) {
+        this.httpClient = resendHttpClient;
+        this.endpoint = URI.create(endpoint);
+        this.apiKey = apiKey;
+        this.requestTimeout = Duration.ofSeconds(requestTimeoutSeconds);
+    }
+
+    public HttpResponse<String> send(HttpRequest.BodyPublisher body) throws IOException, InterruptedException {
+        return httpClient.send(buildRequest(body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    public CompletableFuture<HttpResponse<String>> sendAsync(HttpRequest.BodyPublisher body) {
+        return httpClient.sendAsync(buildRequest(body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest buildRequest(HttpRequest.BodyPublisher body) {
+        return HttpRequest.newBuilder()
+            .uri(endpoint)
+            .timeout(requestTimeout)
+            .header("Authorization", "Bearer " + apiKey)
+            .header("Content-Type", "application/json")
+            .POST(body)
+            .build();
+    }
+}
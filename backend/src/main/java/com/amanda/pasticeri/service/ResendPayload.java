@@ -0,0 +1,169 @@
+package com.amanda.pasticeri.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A Resend JSON body assembled from literal text and files that are Base64-encoded on the fly while the
+ * request is written. Attachments are never held in memory as a whole: each file is read through a
+ * {@link FileChannel} in small chunks, so memory per email stays at one buffer regardless of image size.
+ * The publisher can be subscribed to more than once (e.g. on a retry); every subscription re-reads the files.
+ */
+public class ResendPayload {
+
+    // A multiple of 3 so consecutive chunks encode to Base64 without padding in between
+    private static final int CHUNK_SIZE = 3 * 16 * 1024;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private long contentLength;
+
+    public ResendPayload text(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        segments.add(new Segment(bytes, null));
+        contentLength += bytes.length;
+        return this;
+    }
+
+    public ResendPayload base64File(Path file) throws IOException {
+        long size = Files.size(file);
+        segments.add(new Segment(null, file));
+        contentLength += 4 * ((size + 2) / 3);
+        return this;
+    }
+
+    public long contentLength() {
+        return contentLength;
+    }
+
+    public HttpRequest.BodyPublisher toBodyPublisher() {
+        return HttpRequest.BodyPublishers.fromPublisher(
+            HttpRequest.BodyPublishers.ofInputStream(() -> new SegmentStream(segments.iterator())),
+            contentLength);
+    }
+
+    private record Segment(byte[] text, Path file) {
+        InputStream open() throws IOException {
+            return text != null ? new ByteArrayInputStream(text) : new Base64FileStream(file);
+        }
+    }
+
+    // Concatenates the segments, opening each file only when the previous segment is exhausted
+    private static class SegmentStream extends InputStream {
+        private final Iterator<Segment> remaining;
+        private InputStream current;
+
+        SegmentStream(Iterator<Segment> remaining) {
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (true) {
+                if (current == null) {
+                    if (!remaining.hasNext()) {
+                        return -1;
+                    }
+                    current = remaining.next().open();
+                }
+                int n = current.read(b, off, len);
+                if (n != -1) {
+                    return n;
+                }
+                current.close();
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+            }
+        }
+    }
+
+    // Reads a file in 3-byte aligned chunks and hands out their Base64 encoding
+    private static class Base64FileStream extends InputStream {
+        private final FileChannel channel;
+        private final ByteBuffer raw = ByteBuffer.allocate(CHUNK_SIZE);
+        private final Base64.Encoder encoder = Base64.getEncoder();
+        private final byte[] encoded = new byte[CHUNK_SIZE / 3 * 4];
+        private int length;
+        private int position;
+        private boolean eof;
+
+        Base64FileStream(Path file) {
+            try {
+                this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open attachment " + file, e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return encoded[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, length - position);
+            System.arraycopy(encoded, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private boolean fill() throws IOException {
+            while (position >= length) {
+                if (eof) {
+                    return false;
+                }
+                raw.clear();
+                // Fill the whole chunk so only the final one can be short (and padded)
+                while (raw.hasRemaining()) {
+                    if (channel.read(raw) == -1) {
+                        eof = true;
+                        break;
+                    }
+                }
+                raw.flip();
+                byte[] chunk = raw.remaining() == CHUNK_SIZE ? raw.array() : Arrays.copyOf(raw.array(), raw.remaining());
+                length = encoder.encode(chunk, encoded);
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
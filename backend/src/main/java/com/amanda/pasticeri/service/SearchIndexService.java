@@ -0,0 +1,403 @@
+package com.amanda.pasticeri.service;
+
+import com.amanda.pasticeri.model.FeedItem;
+import com.amanda.pasticeri.model.Product;
+import com.amanda.pasticeri.repository.FeedItemRepository;
+import com.amanda.pasticeri.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Full-text search over product names, categories and descriptions and feed titles and descriptions, kept
+ * in memory as an inverted index. It is loaded from the database on the first search; after that
+ * {@link ProductService} and the feed controller update it on every write, so a search never touches the
+ * database.
+ * <p>
+ * Text is lower-cased and stripped of accents ("Ëmbëlsirë" and "embelsire", "Çokollatë" and "cokollate"
+ * are the same word), and common Albanian and English filler words are skipped. Every query word matches
+ * the indexed words it is a prefix of, so results appear while the customer is still typing; a whole-word
+ * match and a match in the name or title rank higher than a prefix match or one in the description.
+ */
+@Service
+public class SearchIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexService.class);
+
+    public static final int MAX_RESULTS = 50;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+        // Albanian
+        "dhe", "e", "i", "te", "ne", "me", "per", "nga", "se", "qe", "ose", "si", "nje",
+        // English
+        "a", "an", "and", "the", "of", "with", "for", "in", "on", "or", "to"
+    );
+
+    // Field weights: a hit in the name/title says more about the document than one in its description
+    private static final int TITLE_WEIGHT = 4;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int TEXT_WEIGHT = 1;
+    // A prefix match scores this fraction of a whole-word match, scaled by how much of the word it covers
+    private static final double PREFIX_FACTOR = 0.5;
+    private static final Comparator<Scored> RANKING = (a, b) -> rank(a.document(), a.score(), b.document(), b.score());
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private FeedItemRepository feedItemRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> the documents containing it; sorted so a prefix is one contiguous range
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final Map<String, Document> documents = new HashMap<>();
+    // Documents by slot number; postings refer to slots so a search works on plain int arrays
+    private Document[] slots = new Document[64];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotCount;
+    private boolean built;
+
+    /**
+     * Products and feed items matching every word of {@code query}, best first. Filler words are ignored
+     * unless the query is nothing else, so "torte me cokollate" searches for "torte cokollate".
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> terms = queryTerms(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        ensureBuilt();
+
+        lock.readLock().lock();
+        try {
+            double[] total = new double[slotCount];
+            double[] termBest = new double[slotCount];
+            int[] matchedTerms = new int[slotCount];
+            int[] touched = new int[slotCount];
+
+            for (int t = 0; t < terms.size(); t++) {
+                String term = terms.get(t);
+                int touchedCount = 0;
+                for (Map.Entry<String, Postings> entry : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                    double match = entry.getKey().length() == term.length()
+                        ? 1.0
+                        : PREFIX_FACTOR * term.length() / entry.getKey().length();
+                    Postings list = entry.getValue();
+                    for (int i = 0; i < list.size; i++) {
+                        int slot = list.slots[i];
+                        // Only documents that matched every earlier word are still candidates
+                        if (matchedTerms[slot] != t) {
+                            continue;
+                        }
+                        if (termBest[slot] == 0) {
+                            touched[touchedCount++] = slot;
+                        }
+                        termBest[slot] = Math.max(termBest[slot], match * list.weights[i]);
+                    }
+                }
+                if (touchedCount == 0) {
+                    return List.of();
+                }
+                // A word can match several indexed words of one document; only its best match counts
+                for (int i = 0; i < touchedCount; i++) {
+                    int slot = touched[i];
+                    total[slot] += termBest[slot];
+                    termBest[slot] = 0;
+                    matchedTerms[slot]++;
+                }
+            }
+
+            int max = Math.max(1, Math.min(limit, MAX_RESULTS));
+            // Keeps only the best max results, worst at the head, instead of sorting every match
+            PriorityQueue<Scored> best = new PriorityQueue<>(max + 1, RANKING.reversed());
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (matchedTerms[slot] != terms.size()) {
+                    continue;
+                }
+                // Checked against the worst result kept so far without allocating; most matches of a broad query stop here
+                if (best.size() == max && rank(slots[slot], total[slot], best.peek().document(), best.peek().score()) > 0) {
+                    continue;
+                }
+                best.add(new Scored(slots[slot], total[slot]));
+                if (best.size() > max) {
+                    best.poll();
+                }
+            }
+
+            List<Scored> ranked = new ArrayList<>(best);
+            ranked.sort(RANKING);
+            return ranked.stream().map(scored -> scored.document().hit(scored.score())).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void indexProduct(Product product) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, product.getName(), TITLE_WEIGHT);
+        addTerms(terms, product.getCategory(), CATEGORY_WEIGHT);
+        addTerms(terms, product.getDescription(), TEXT_WEIGHT);
+        update(new Document("product", product.getId(), product.getName(), product.getDescription(),
+            product.getImageUrl(), terms));
+    }
+
+    public void removeProduct(Long id) {
+        remove(key("product", id));
+    }
+
+    public void indexFeedItem(FeedItem item) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, item.getTitle(), TITLE_WEIGHT);
+        addTerms(terms, item.getDescription(), TEXT_WEIGHT);
+        update(new Document("feed", item.getId(), item.getTitle(), item.getDescription(), item.getUrl(), terms));
+    }
+
+    public void removeFeedItem(Long id) {
+        remove(key("feed", id));
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("built", built);
+            stats.put("documents", documents.size());
+            stats.put("terms", postings.size());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower-cased, accent-free words of {@code text}: "Tortë me Çokollatë!" becomes
+     * {@code [torte, me, cokollate]}. Filler words are not removed here.
+     */
+    static List<String> normalize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD))
+            .replaceAll("");
+        List<String> words = new ArrayList<>();
+        for (String word : NON_WORD.split(folded)) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    // A lone filler-looking word is kept, since it may be the start of a real one ("per" -> "perime")
+    private static List<String> queryTerms(String query) {
+        List<String> words = normalize(query);
+        Set<String> terms = new LinkedHashSet<>();
+        for (String word : words) {
+            if (!STOP_WORDS.contains(word)) {
+                terms.add(word);
+            }
+        }
+        if (terms.isEmpty() && words.size() == 1) {
+            terms.add(words.get(0));
+        }
+        return List.copyOf(terms);
+    }
+
+    private static void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String word : normalize(text)) {
+            if (!STOP_WORDS.contains(word)) {
+                terms.merge(word, weight, Math::max);
+            }
+        }
+    }
+
+    private void ensureBuilt() {
+        lock.readLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            // Writes wait for the lock while we load, so none can be lost between this read and the first search
+            built = true;
+            productRepository.findAll().forEach(this::indexProduct);
+            feedItemRepository.findAll().forEach(this::indexFeedItem);
+            logger.info("🔎 Search index built: {} documents, {} terms in {} ms",
+                documents.size(), postings.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            built = false;
+            postings.clear();
+            documents.clear();
+            Arrays.fill(slots, null);
+            slotCount = 0;
+            freeCount = 0;
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void update(Document document) {
+        lock.writeLock().lock();
+        try {
+            // Until the first search the index is empty; the initial load will pick this write up from the database
+            if (!built) {
+                return;
+            }
+            removeLocked(document.key);
+            document.slot = allocateSlot();
+            slots[document.slot] = document;
+            documents.put(document.key, document);
+            document.terms.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new Postings()).add(document.slot, weight));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(String key) {
+        Document previous = documents.remove(key);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous.terms.keySet()) {
+            Postings list = postings.get(term);
+            if (list != null) {
+                list.remove(previous.slot);
+                if (list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+        slots[previous.slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = previous.slot;
+    }
+
+    // Reuses the slot of a removed document, so the slot range stays as small as the index
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == slots.length) {
+            slots = Arrays.copyOf(slots, slotCount * 2);
+        }
+        return slotCount++;
+    }
+
+    // Best score first; equal scores list products before feed items, then by id
+    private static int rank(Document a, double aScore, Document b, double bScore) {
+        if (aScore != bScore) {
+            return aScore > bScore ? -1 : 1;
+        }
+        if (!a.type.equals(b.type)) {
+            return "product".equals(a.type) ? -1 : 1;
+        }
+        return Long.compare(a.id, b.id);
+    }
+
+    private static String key(String type, Long id) {
+        return type + ":" + id;
+    }
+
+    // The slots of the documents containing one term, with the term's highest field weight in each
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int[] weights = new int[4];
+        private int size;
+
+        private void add(int slot, int weight) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            slots[size] = slot;
+            weights[size] = weight;
+            size++;
+        }
+
+        private void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    size--;
+                    slots[i] = slots[size];
+                    weights[i] = weights[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class Document {
+        private final String key;
+        private final String type;
+        private final Long id;
+        private final String title;
+        private final String description;
+        private final String url;
+        private final Map<String, Integer> terms;
+        private int slot;
+
+        private Document(String type, Long id, String title, String description, String url, Map<String, Integer> terms) {
+            this.key = key(type, id);
+            this.type = type;
+            this.id = id;
+            this.title = title;
+            this.description = description;
+            this.url = url;
+            this.terms = terms;
+        }
+
+        private Hit hit(double score) {
+            return new Hit(type, id, title, description, url, Math.round(score * 100) / 100.0);
+        }
+    }
+
+    private record Scored(Document document, double score) {
+    }
+
+    /** One search result; {@code type} is "product" or "feed" and {@code url} the product image or feed media. */
+    public record Hit(String type, Long id, String title, String description, String url, double score) {
+    }
+}
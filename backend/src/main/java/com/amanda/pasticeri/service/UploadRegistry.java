@@ -0,0 +1,276 @@
+package com.amanda.pasticeri.service;
+
+import com.amanda.pasticeri.model.UploadedFile;
+import com.amanda.pasticeri.repository.UploadedFileRepository;
+import com.amanda.pasticeri.util.UploadPathResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Where every {@code /uploads/...} URL lives on disk. {@link ImageUploadService} registers each file as it
+ * is stored, so resolving a URL is a map lookup (falling back to one indexed DB read after a restart)
+ * instead of probing candidate directories. Files uploaded before the registry existed are found once by
+ * the old directory probe and registered on the spot.
+ * <p>
+ * Each entry also counts its owners (products, feed items and orders showing the URL). Uploading does not
+ * count: a file that is uploaded but never attached stays at zero and is swept by {@link ImageUploadService}.
+ */
+@Service
+public class UploadRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadRegistry.class);
+    private static final String URL_PREFIX = "/uploads/";
+    // Bounds for the negative cache: URLs come from public requests, so it must not grow with them
+    private static final int MAX_MISSING = 10_000;
+    private static final long MISSING_TTL_MILLIS = 10 * 60 * 1000;
+
+    @Autowired
+    private UploadedFileRepository uploadedFileRepository;
+
+    private final Map<String, UploadedFile> byUrl = new ConcurrentHashMap<>();
+    // URLs already probed without success (to when), so a broken image link costs no stat calls on later
+    // emails; least recently used first, guarded by itself
+    private final Map<String, Long> missing = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_MISSING;
+        }
+    };
+
+    public UploadedFile register(String url, Path storedFile, long size, String contentType, String checksum, String fileType) {
+        UploadedFile entry = new UploadedFile();
+        entry.setUrl(url);
+        entry.setStoragePath(canonical(storedFile));
+        entry.setSize(size);
+        entry.setContentType(contentType);
+        entry.setChecksum(checksum);
+        entry.setFileType(fileType);
+
+        UploadedFile saved;
+        try {
+            saved = uploadedFileRepository.save(entry);
+        } catch (DataIntegrityViolationException e) {
+            // Registered concurrently (e.g. two emails resolving the same legacy file); keep the existing row
+            saved = uploadedFileRepository.findByUrl(url).orElseThrow(() -> e);
+        }
+        byUrl.put(url, saved);
+        synchronized (missing) {
+            missing.remove(url);
+        }
+        return saved;
+    }
+
+    public Optional<UploadedFile> find(String url) {
+        if (url == null) {
+            return Optional.empty();
+        }
+        UploadedFile cached = byUrl.get(url);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<UploadedFile> stored = uploadedFileRepository.findByUrl(url);
+        stored.ifPresent(entry -> byUrl.put(url, entry));
+        return stored;
+    }
+
+    /** The oldest entry holding this content, which new uploads of the same bytes are deduplicated against. */
+    public Optional<UploadedFile> findByChecksum(String checksum) {
+        return uploadedFileRepository.findFirstByChecksumOrderByIdAsc(checksum);
+    }
+
+    /** Records another upload of {@code entry}'s content (no file is written for it), restarting its grace period. */
+    public UploadedFile touch(UploadedFile entry) {
+        entry.setUploadedAt(LocalDateTime.now());
+        return cache(uploadedFileRepository.save(entry));
+    }
+
+    /** Records one more owner of {@code url}; empty if the URL is not a registered upload. */
+    public Optional<UploadedFile> addReference(String url) {
+        return find(url).map(entry -> {
+            entry.setRefCount(entry.getRefCount() + 1);
+            return cache(uploadedFileRepository.save(entry));
+        });
+    }
+
+    /**
+     * Drops one owner of {@code url}. Returns the entry once nothing refers to it any more, so the caller can
+     * delete the file; empty while other owners remain or if the URL is unknown.
+     */
+    public Optional<UploadedFile> release(String url) {
+        Optional<UploadedFile> entry = find(url);
+        if (entry.isEmpty()) {
+            return Optional.empty();
+        }
+
+        UploadedFile file = entry.get();
+        file.setRefCount(Math.max(0, file.getRefCount() - 1));
+        file = cache(uploadedFileRepository.save(file));
+        return file.getRefCount() == 0 ? Optional.of(file) : Optional.empty();
+    }
+
+    /** Entries without owners last uploaded before {@code cutoff} whose file lives under {@code directory}. */
+    public List<UploadedFile> unreferencedSince(LocalDateTime cutoff, String directory) {
+        return uploadedFileRepository.findUnreferenced(cutoff, directory + "%");
+    }
+
+    public void remove(UploadedFile entry) {
+        uploadedFileRepository.delete(entry);
+        byUrl.remove(entry.getUrl());
+    }
+
+    /**
+     * Sets every entry's count to its number of owners in {@code owners} (URL to count, missing meaning none).
+     * Returns how many entries were off.
+     */
+    public int resetReferences(Map<String, Integer> owners) {
+        int corrected = 0;
+        for (UploadedFile entry : uploadedFileRepository.findAll()) {
+            int count = owners.getOrDefault(entry.getUrl(), 0);
+            if (entry.getRefCount() != count) {
+                entry.setRefCount(count);
+                uploadedFileRepository.save(entry);
+                corrected++;
+            }
+        }
+        byUrl.clear();
+        return corrected;
+    }
+
+    private UploadedFile cache(UploadedFile entry) {
+        byUrl.put(entry.getUrl(), entry);
+        return entry;
+    }
+
+    /** The file behind an {@code /uploads/...} URL, or empty if it is not an upload or cannot be found. */
+    public Optional<File> resolve(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX) || url.contains("..")) {
+            return Optional.empty();
+        }
+
+        // Known-missing URLs skip the DB read too; registering a URL takes it off the list
+        if (!byUrl.containsKey(url) && knownMissing(url)) {
+            return Optional.empty();
+        }
+        Optional<UploadedFile> entry = find(url);
+        if (entry.isPresent()) {
+            return Optional.of(new File(entry.get().getStoragePath()));
+        }
+
+        Optional<File> legacy = probeLegacyLocations(url);
+        if (legacy.isEmpty()) {
+            synchronized (missing) {
+                missing.put(url, System.currentTimeMillis());
+            }
+            return Optional.empty();
+        }
+
+        try {
+            File file = legacy.get();
+            register(url, file.toPath(), file.length(), Files.probeContentType(file.toPath()), sha256(file.toPath()), null);
+            logger.info("🗂️ Registered legacy upload {} at {}", url, file.getAbsolutePath());
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not register legacy upload {}: {}", url, e.getMessage());
+        }
+        return legacy;
+    }
+
+    public List<UploadedFile> recent(int limit) {
+        return uploadedFileRepository.findAllByOrderByIdDesc(PageRequest.of(0, limit));
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("registeredFiles", uploadedFileRepository.count());
+        stats.put("registeredBytes", uploadedFileRepository.sumSize());
+        stats.put("references", uploadedFileRepository.sumRefCount());
+        stats.put("cachedEntries", byUrl.size());
+        synchronized (missing) {
+            stats.put("knownMissing", missing.size());
+        }
+        return stats;
+    }
+
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Expired entries are probed again, so a legacy file restored onto the volume is found eventually
+    private boolean knownMissing(String url) {
+        synchronized (missing) {
+            Long probedAt = missing.get(url);
+            if (probedAt == null) {
+                return false;
+            }
+            if (System.currentTimeMillis() - probedAt > MISSING_TTL_MILLIS) {
+                missing.remove(url);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    // The directories uploads were looked up in before the registry existed
+    private Optional<File> probeLegacyLocations(String url) {
+        String currentDir = System.getProperty("user.dir");
+        String fileName = url.substring(URL_PREFIX.length());
+        String uploadDir = UploadPathResolver.resolveUploadDirectory();
+        List<String> possiblePaths = List.of(
+            Path.of(uploadDir).resolve(fileName).toString(),
+            currentDir + url,
+            currentDir + "/backend" + url,
+            currentDir + "/uploads/" + fileName,
+            "uploads/" + fileName,
+            currentDir + "/backend/uploads/" + fileName
+        );
+
+        for (String path : possiblePaths) {
+            File candidate = new File(path);
+            if (candidate.isFile()) {
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private String canonical(Path file) {
+        try {
+            return file.toFile().getCanonicalPath();
+        } catch (IOException e) {
+            return file.toAbsolutePath().normalize().toString();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.amanda.pasticeri.service;
 
 import com.amanda.pasticeri.model.User;
 import com.amanda.pasticeri.repository.UserRepository;
+import com.amanda.pasticeri.security.PrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -15,6 +16,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
     public boolean registerUser(String email, String password, String name) {
         if (userRepository.findByEmail(email).isPresent()) {
             return false; // Email already in use
@@ -27,6 +31,7 @@ public class UserService {
         user.setRole("USER"); // All signups are normal users
 
         userRepository.save(user);
+        principalCache.invalidate(email);
         return true;
     }
 }
@@ -0,0 +1,62 @@
+package com.amanda.pasticeri.util;
+
+import javax.imageio.ImageIO;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * URLs of the resized copies of an uploaded image, as exposed on products and feed items. Variants are
+ * generated on first request by {@code GET /api/images/{width}/...}, so these URLs are valid as soon as
+ * the upload is.
+ */
+public final class ImageVariants {
+
+    public static final List<Integer> WIDTHS = List.of(320, 640, 1024);
+    public static final String URL_PREFIX = "/api/images/";
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp", "webp");
+    private static final boolean WEBP_SUPPORTED = ImageIO.getImageWritersByFormatName("webp").hasNext();
+
+    private ImageVariants() {}
+
+    /**
+     * {@code {"320w": url, "640w": url, "1024w": url, "srcset": "url 320w, ..."}}, plus {@code webpSrcset}
+     * when the JVM can encode WebP; null for anything that is not an uploaded raster image.
+     */
+    public static Map<String, String> forUpload(String uploadUrl) {
+        if (!isVariantSource(uploadUrl)) {
+            return null;
+        }
+        Map<String, String> variants = new LinkedHashMap<>();
+        for (int width : WIDTHS) {
+            variants.put(width + "w", url(uploadUrl, width, null));
+        }
+        variants.put("srcset", srcset(uploadUrl, null));
+        if (WEBP_SUPPORTED) {
+            variants.put("webpSrcset", srcset(uploadUrl, "webp"));
+        }
+        return variants;
+    }
+
+    public static String url(String uploadUrl, int width, String format) {
+        String url = URL_PREFIX + width + "/" + uploadUrl.substring("/uploads/".length());
+        return format == null ? url : url + "?format=" + format;
+    }
+
+    public static boolean isVariantSource(String uploadUrl) {
+        if (uploadUrl == null || !uploadUrl.startsWith("/uploads/")) {
+            return false;
+        }
+        int dot = uploadUrl.lastIndexOf('.');
+        return dot > 0 && IMAGE_EXTENSIONS.contains(uploadUrl.substring(dot + 1).toLowerCase());
+    }
+
+    private static String srcset(String uploadUrl, String format) {
+        return WIDTHS.stream()
+            .map(width -> url(uploadUrl, width, format) + " " + width + "w")
+            .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,65 @@
+package com.amanda.pasticeri.util;
+
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The request side of the keyset-paged lists (order history, feed): {@code cursor}/{@code limit} handling,
+ * limit clamping, and the opaque cursor format. Every paged endpoint goes through here, so they all accept
+ * and reject the same input with the same messages.
+ */
+public final class KeysetPaging {
+
+    public static final int DEFAULT_LIMIT = 20;
+
+    private KeysetPaging() {}
+
+    @FunctionalInterface
+    public interface PageLoader {
+        Object load(String cursor, int size);
+    }
+
+    /**
+     * The whole list when neither {@code cursor} nor {@code limit} is given (older clients), otherwise one
+     * slice of at most {@code maxLimit} items. An invalid cursor is answered with 400.
+     */
+    public static ResponseEntity<?> respond(ResponseEntity.BodyBuilder ok, String cursor, Integer limit, int maxLimit,
+                                            Supplier<?> fullList, PageLoader page) {
+        if (cursor == null && limit == null) {
+            return ok.body(fullList.get());
+        }
+        try {
+            return ok.body(page.load(cursor, pageSize(limit, maxLimit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    public static int pageSize(Integer limit, int maxLimit) {
+        return Math.max(1, Math.min(limit != null ? limit : DEFAULT_LIMIT, maxLimit));
+    }
+
+    /** Position of the last item of a slice: its sort key and id, so ties on the sort key never skip rows. */
+    public record Cursor<T>(T position, Long id) {
+
+        public String encode() {
+            String raw = position + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static <T> Cursor<T> decode(String cursor, Function<String, T> positionParser) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new Cursor<>(positionParser.apply(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
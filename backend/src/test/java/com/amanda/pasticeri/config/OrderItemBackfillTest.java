@@ -0,0 +1,96 @@
+package com.amanda.pasticeri.config;
+
+import com.amanda.pasticeri.model.Order;
+import com.amanda.pasticeri.model.OrderItem;
+import com.amanda.pasticeri.model.Product;
+import com.amanda.pasticeri.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderItemBackfillTest {
+
+    private OrderItemBackfill backfill;
+
+    @BeforeEach
+    void setUp() {
+        ProductRepository products = mock(ProductRepository.class);
+        when(products.findByNameIn(any())).thenReturn(List.of(
+            product(1L, "Tiramisu", 12.0),
+            product(2L, "Bakllava", 4.0),
+            product(3L, "Trilece", 3.0)));
+
+        backfill = new OrderItemBackfill();
+        ReflectionTestUtils.setField(backfill, "productRepository", products);
+    }
+
+    @Test
+    void lineTotalsAddUpToTheOrderTotal() {
+        List<Order> orders = List.of(
+            order(10L, "Tiramisu, Bakllava", 3, 31.0),
+            order(11L, "Tiramisu, Bakllava, Trilece", 7, 100.0),
+            order(12L, "Tiramisu, Discontinued Cake", 2, 45.5),
+            order(13L, "Gone, Also Gone, Never Sold", 4, 10.0),
+            order(14L, "Trilece", 5, 17.5));
+
+        List<OrderItem> lines = backfill.buildLines(orders);
+
+        for (Order order : orders) {
+            List<OrderItem> orderLines = lines.stream().filter(line -> line.getOrder() == order).toList();
+            long cents = orderLines.stream().mapToLong(line -> Math.round(line.getLineTotal() * 100)).sum();
+            assertEquals(Math.round(order.getTotalPrice() * 100), cents, "order " + order.getId());
+            assertTrue(orderLines.stream().allMatch(line -> line.getLineTotal() >= 0), "order " + order.getId());
+        }
+    }
+
+    @Test
+    void totalIsSharedByCatalogValue() {
+        // Quantities 2 and 1: catalog value 24 and 4, so 31.00 splits 6:1
+        List<OrderItem> lines = backfill.buildLines(List.of(order(10L, "Tiramisu, Bakllava", 3, 31.0)));
+
+        assertEquals(2, lines.get(0).getQuantity());
+        assertEquals(26.57, lines.get(0).getLineTotal(), 0.001);
+        assertEquals(4.43, lines.get(1).getLineTotal(), 0.001);
+    }
+
+    @Test
+    void ordersWithoutCatalogPricesAreSplitEvenly() {
+        List<OrderItem> lines = backfill.buildLines(List.of(order(13L, "Gone, Also Gone, Never Sold", 3, 10.0)));
+
+        assertEquals(List.of(3.33, 3.34, 3.33), lines.stream().map(OrderItem::getLineTotal).toList());
+    }
+
+    @Test
+    void singleProductOrdersKeepTheirExactTotal() {
+        OrderItem line = backfill.buildLines(List.of(order(14L, "Trilece", 5, 17.5))).get(0);
+
+        assertEquals(5, line.getQuantity());
+        assertEquals(17.5, line.getLineTotal(), 0.0);
+        assertEquals(3.5, line.getUnitPrice(), 0.0);
+    }
+
+    private static Product product(Long id, String name, double price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setPrice(price);
+        return product;
+    }
+
+    private static Order order(Long id, String productName, int numberOfPersons, double totalPrice) {
+        Order order = new Order();
+        order.setId(id);
+        order.setProductName(productName);
+        order.setNumberOfPersons(numberOfPersons);
+        order.setTotalPrice(totalPrice);
+        return order;
+    }
+}
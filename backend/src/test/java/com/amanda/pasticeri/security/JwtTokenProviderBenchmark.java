@@ -0,0 +1,84 @@
+package com.amanda.pasticeri.security;
+
+import com.amanda.pasticeri.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens verified per second for one authenticated request.
+ * {@code legacyPerRequest} reproduces the old flow (validate, email, role, then the controller's
+ * email lookup, each building a fresh parser); {@code singleParse} is one verification with the
+ * shared parser, and {@code cachedParse} is the filter path for a bearer token seen before.
+ * <p>
+ * Run with: {@code mvn test-compile} and then start {@link #main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRET =
+            "x9nRQFvUkH3LbZpTAK7uGzV2W1X6dJq0MePs9YcXLu8tSrCaN5EvBmTwQ4hJy7kZ4jr49cm390fmxn930wmicf049ck0m59m0c";
+
+    private JwtTokenProvider provider;
+    private JwtTokenProvider cachingProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        provider = newProvider(new VerifiedTokenCache(false, 0, 86400000L));
+        cachingProvider = newProvider(new VerifiedTokenCache(true, 2000, 86400000L));
+
+        User user = new User();
+        user.setEmail("benchmark@pasticeriamanda.com");
+        user.setRole("USER");
+        token = provider.generateToken(user);
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public String legacyPerRequest() {
+        Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token);
+        Claims email = Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+        Claims role = Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+        Claims controller = Jwts.parserBuilder().setSigningKey(SECRET).build().parseClaimsJws(token).getBody();
+        return email.getSubject() + role.get("role", String.class) + controller.getSubject();
+    }
+
+    @Benchmark
+    public TokenClaims singleParse() {
+        return provider.parseToken(token).orElseThrow();
+    }
+
+    @Benchmark
+    public TokenClaims cachedParse() {
+        return cachingProvider.parseToken(token).orElseThrow();
+    }
+
+    private static JwtTokenProvider newProvider(VerifiedTokenCache cache) {
+        JwtTokenProvider tokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(tokenProvider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(tokenProvider, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(tokenProvider, "verifiedTokenCache", cache);
+        tokenProvider.init();
+        return tokenProvider;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtTokenProviderBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
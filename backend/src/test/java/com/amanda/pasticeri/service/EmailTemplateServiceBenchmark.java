@@ -0,0 +1,99 @@
+package com.amanda.pasticeri.service;
+
+import com.amanda.pasticeri.model.Order;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders per second for each of the eight order email templates, using a custom order with every
+ * optional section filled in (customer card, delivery rows, price panel, linked design images).
+ * <p>
+ * Run with: {@code mvn test-compile} and then start {@link #main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailTemplateServiceBenchmark {
+
+    private EmailTemplateService templates;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        templates = new EmailTemplateService();
+        ReflectionTestUtils.setField(templates, "imageLinkBaseUrl", "https://api.pasticeriamanda.com");
+
+        order = new Order();
+        order.setId(1042L);
+        order.setCustomerName("Amanda Hoxha");
+        order.setCustomerEmail("amanda@example.com");
+        order.setCustomerPhone("+355 69 000 0000");
+        order.setProductName("Three-tier wedding cake");
+        order.setNumberOfPersons(120);
+        order.setFlavour("Pistachio & raspberry");
+        order.setCustomNote("Gold leaf on the top tier, \"A & B\" written on the plaque.");
+        order.setOrderDate(LocalDate.of(2026, 6, 1));
+        order.setDeliveryDateTime(LocalDateTime.of(2026, 6, 20, 15, 30));
+        order.setTotalPrice(45000.0);
+        order.setImageUrls("/uploads/design-1.jpg,/uploads/design-2.jpg,/uploads/design-3.png");
+        order.setOrderType("custom");
+    }
+
+    @Benchmark
+    public String orderConfirmation() {
+        return templates.getOrderConfirmationTemplate(order);
+    }
+
+    @Benchmark
+    public String newOrderNotification() {
+        return templates.getNewOrderNotificationTemplate(order);
+    }
+
+    @Benchmark
+    public String adminPriceSet() {
+        return templates.getAdminPriceSetTemplate(order);
+    }
+
+    @Benchmark
+    public String adminOrderCancelled() {
+        return templates.getAdminOrderCancelledTemplate(order);
+    }
+
+    @Benchmark
+    public String adminOrderCompleted() {
+        return templates.getAdminOrderCompletedTemplate(order);
+    }
+
+    @Benchmark
+    public String orderCancelled() {
+        return templates.getOrderCancelledTemplate(order);
+    }
+
+    @Benchmark
+    public String priceSet() {
+        return templates.getPriceSetTemplate(order);
+    }
+
+    @Benchmark
+    public String orderCompleted() {
+        return templates.getOrderCompletedTemplate(order);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EmailTemplateServiceBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.amanda.pasticeri.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emails sent per second through {@link ResendClient} against a local stub of the Resend API.
+ * {@code newClientPerEmail} reproduces the old behaviour (a fresh HttpClient, so a fresh connection, for
+ * every email); {@code sharedClient} is the current blocking path and {@code sharedClientAsyncBurst} a burst
+ * of {@link ResendClient#sendAsync} calls. The JDK stub only speaks cleartext HTTP/1.1, so this measures
+ * connection reuse rather than HTTP/2 multiplexing.
+ * <p>
+ * Run with: {@code mvn test-compile} and then start {@link #main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// Without TCP_NODELAY the stub's split header/body writes hit delayed ACKs on kept-alive connections
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class ResendClientBenchmark {
+
+    private static final int BURST = 50;
+    private static final String PAYLOAD = "{\"from\":\"a@b\",\"to\":[\"c@d\"],\"subject\":\"s\",\"html\":\"<p>hi</p>\"}";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String endpoint;
+    private ResendClient shared;
+
+    @Setup
+    public void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/emails", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = "{\"id\":\"stub\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/emails";
+        shared = new ResendClient(newHttpClient(), endpoint, "test-key", 5);
+    }
+
+    @TearDown
+    public void stopStub() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int newClientPerEmail() throws Exception {
+        ResendClient client = new ResendClient(newHttpClient(), endpoint, "test-key", 5);
+        return client.send(HttpRequest.BodyPublishers.ofString(PAYLOAD)).statusCode();
+    }
+
+    @Benchmark
+    public int sharedClient() throws Exception {
+        return shared.send(HttpRequest.BodyPublishers.ofString(PAYLOAD)).statusCode();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public int sharedClientAsyncBurst() {
+        List<CompletableFuture<HttpResponse<String>>> inFlight = new ArrayList<>(BURST);
+        for (int i = 0; i < BURST; i++) {
+            inFlight.add(shared.sendAsync(HttpRequest.BodyPublishers.ofString(PAYLOAD)));
+        }
+        int ok = 0;
+        for (CompletableFuture<HttpResponse<String>> future : inFlight) {
+            ok += future.join().statusCode() == 200 ? 1 : 0;
+        }
+        return ok;
+    }
+
+    private static HttpClient newHttpClient() {
+        return HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ResendClientBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.amanda.pasticeri.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResendPayloadTest {
+
+    // ResendPayload reads attachments in chunks of this many bytes
+    private static final int CHUNK = 3 * 16 * 1024;
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, CHUNK - 1, CHUNK, CHUNK + 1, 2 * CHUNK + 2})
+    void encodesFilesExactlyLikeTheJdkEncoder(int size) throws Exception {
+        byte[] content = randomBytes(size);
+        Path file = Files.write(dir.resolve("attachment.bin"), content);
+
+        ResendPayload payload = new ResendPayload().text("{\"content\":\"").base64File(file).text("\"}");
+
+        byte[] expected = ("{\"content\":\"" + Base64.getEncoder().encodeToString(content) + "\"}")
+            .getBytes(StandardCharsets.UTF_8);
+        byte[] body = read(payload.toBodyPublisher());
+        assertArrayEquals(expected, body);
+        assertEquals(expected.length, payload.contentLength());
+    }
+
+    @Test
+    void everySubscriptionRereadsTheFiles() throws Exception {
+        Path first = Files.write(dir.resolve("first.bin"), randomBytes(CHUNK + 1));
+        Path second = Files.write(dir.resolve("second.bin"), randomBytes(5));
+        HttpRequest.BodyPublisher publisher = new ResendPayload()
+            .text("[\"").base64File(first).text("\",\"").base64File(second).text("\"]")
+            .toBodyPublisher();
+
+        byte[] once = read(publisher);
+        byte[] again = read(publisher);
+
+        assertArrayEquals(once, again);
+        assertEquals(publisher.contentLength(), again.length);
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    // Drains the publisher the way the HTTP client does, one subscription per call
+    private static byte[] read(HttpRequest.BodyPublisher publisher) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompletableFuture<byte[]> done = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer item) {
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                out.writeBytes(bytes);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(out.toByteArray());
+            }
+        });
+        return done.get(10, TimeUnit.SECONDS);
+    }
+}
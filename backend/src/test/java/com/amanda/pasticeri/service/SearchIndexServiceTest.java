@@ -0,0 +1,110 @@
+package com.amanda.pasticeri.service;
+
+import com.amanda.pasticeri.model.FeedItem;
+import com.amanda.pasticeri.model.Product;
+import com.amanda.pasticeri.repository.FeedItemRepository;
+import com.amanda.pasticeri.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SearchIndexServiceTest {
+
+    private SearchIndexService index;
+
+    @BeforeEach
+    void setUp() {
+        ProductRepository products = mock(ProductRepository.class);
+        FeedItemRepository feed = mock(FeedItemRepository.class);
+        when(products.findAll()).thenReturn(List.of(
+            product(1L, "Tortë me Çokollatë", "Torte", "Biskotë me krem"),
+            product(2L, "Tortë me Fruta", "Torte", "Luleshtrydhe dhe kivi"),
+            product(3L, "Bakllava", "Ëmbëlsira", "Me arra dhe mjaltë")));
+        when(feed.findAll()).thenReturn(List.of(feedItem(10L, "Dasma e Anës", "Torte çokollate me tre kate")));
+
+        index = new SearchIndexService();
+        ReflectionTestUtils.setField(index, "productRepository", products);
+        ReflectionTestUtils.setField(index, "feedItemRepository", feed);
+    }
+
+    @Test
+    void foldsCaseAndAccents() {
+        assertEquals(List.of(1L), ids("TORTË ÇOKOLLATË", "product"));
+        assertEquals(List.of(1L), ids("torte cokollate", "product"));
+        assertEquals(List.of(3L), ids("embelsira", "product"));
+    }
+
+    @Test
+    void everyWordMustMatch() {
+        assertEquals(List.of(2L), ids("torte fruta", "product"));
+        assertTrue(index.search("fruta cokollate", 10).isEmpty());
+    }
+
+    @Test
+    void wordsMatchAsPrefixesButWholeWordsRankFirst() {
+        assertEquals(List.of(1L), ids("cokol", "product"));
+
+        List<SearchIndexService.Hit> hits = index.search("tort", 10);
+        assertEquals(List.of(1L, 2L, 10L), hits.stream().map(SearchIndexService.Hit::id).toList());
+
+        // The same document scores higher for the whole word than for a prefix of it
+        assertTrue(index.search("torte", 10).get(0).score() > hits.get(0).score());
+    }
+
+    @Test
+    void fillerWordsAreSkippedUnlessTheyAreTheWholeQuery() {
+        assertEquals(ids("torte cokollate", null), ids("torte me cokollate", null));
+        assertEquals(ids("torte", null), ids("the torte", null));
+        // A lone "me" is kept as a prefix, but filler words themselves are never indexed
+        assertTrue(index.search("me", 10).isEmpty());
+        assertEquals(List.of(3L), ids("mj", "product"));
+    }
+
+    @Test
+    void removedDocumentsDisappearAndFreedSlotsAreReused() {
+        index.search("torte", 10); // builds the index
+        index.removeProduct(1L);
+        index.indexProduct(product(4L, "Pasta Sheqeri", "Pasta", "Bardhe"));
+
+        assertEquals(List.of(2L), ids("torte", "product"));
+        assertTrue(index.search("biskote", 10).isEmpty());
+        assertEquals(List.of(4L), ids("sheqeri", "product"));
+
+        // Re-indexing an existing document replaces its words rather than adding to them
+        index.indexProduct(product(2L, "Tortë Limoni", "Torte", "Limon i freskët"));
+        assertTrue(index.search("fruta", 10).isEmpty());
+        assertEquals(List.of(2L), ids("limoni", "product"));
+        assertEquals(4, index.stats().get("documents"));
+    }
+
+    private List<Long> ids(String query, String type) {
+        return index.search(query, 10).stream()
+            .filter(hit -> type == null || hit.type().equals(type))
+            .map(SearchIndexService.Hit::id)
+            .toList();
+    }
+
+    private static Product product(Long id, String name, String category, String description) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName(name);
+        product.setCategory(category);
+        product.setDescription(description);
+        return product;
+    }
+
+    private static FeedItem feedItem(Long id, String title, String description) {
+        FeedItem item = new FeedItem();
+        item.setId(id);
+        item.setTitle(title);
+        item.setDescription(description);
+        return item;
+    }
+}